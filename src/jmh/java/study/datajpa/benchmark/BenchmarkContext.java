@@ -0,0 +1,47 @@
+package study.datajpa.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//벤치마크용 스프링 컨텍스트 - 벤치마크마다 별도의 인메모리 H2 를 쓴다
+//SQL 로그와 p6spy 는 측정값을 흐리기 때문에 끈다.
+public class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String database, String... properties) {
+        return start(WebApplicationType.NONE, database, properties);
+    }
+
+    //임의의 포트로 톰캣까지 띄운다 - 포트는 local.server.port 로 꺼낸다
+    public static ConfigurableApplicationContext startWeb(String database, String... properties) {
+        List<String> webProperties = new ArrayList<>();
+        webProperties.add("server.port=0");
+        webProperties.addAll(Arrays.asList(properties));
+        return start(WebApplicationType.SERVLET, database, webProperties.toArray(new String[0]));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String database, String... properties) {
+        List<String> defaults = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "decorator.datasource.enabled=false",
+                "logging.level.root=warn",
+                "logging.level.org.hibernate.SQL=warn"
+        ));
+        //뒤에 있는 값이 앞의 기본값을 덮어쓴다
+        defaults.addAll(Arrays.asList(properties));
+        //application.yml 보다 우선하도록 커맨드라인 인자로 넘긴다
+        String[] args = defaults.stream().map(property -> "--" + property).toArray(String[]::new);
+        return new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(webApplicationType)
+                .run(args);
+    }
+}
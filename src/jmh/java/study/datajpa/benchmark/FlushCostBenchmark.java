@@ -0,0 +1,93 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//영속성 컨텍스트에 회원이 많을 때 flush 비용
+//바이트코드 향상(변경 추적)이 켜져 있으면 flush 때 엔티티마다 스냅샷과 필드를 비교하지 않고
+//바뀐 필드 표시만 확인하기 때문에 비교 비용이 바뀐 엔티티 수에 비례한다.
+//(영속성 컨텍스트의 엔티티를 한번씩 훑는 것은 남아 있다)
+//향상 여부는 컴파일할 때 정해지기 때문에 두번 실행해서 비교한다
+//  향상   : ./gradlew jmh -PjmhInclude=FlushCostBenchmark                 (build/reports/jmh/results.json)
+//  기준   : ./gradlew clean jmh -PjmhInclude=FlushCostBenchmark -PnoEnhance (build/reports/jmh/results-unenhanced.json)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FlushCostBenchmark {
+
+    static final int DIRTY_COUNT = 10;
+
+    @Param({"10000", "100000"})
+    int memberCount;
+
+    ConfigurableApplicationContext context;
+    EntityManagerFactory emf;
+    EntityManager em;
+    List<Member> members;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //결과 파일만 봐서는 어느 쪽인지 알 수 없기 때문에 실행할 때 남긴다
+        System.out.println("# Member enhanced: " + SelfDirtinessTracker.class.isAssignableFrom(Member.class));
+        context = BenchmarkContext.start("flush-cost-" + memberCount,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        emf = context.getBean(EntityManagerFactory.class);
+        MemberRepository memberRepository = context.getBean(MemberRepository.class);
+        context.getBean(TransactionTemplate.class).execute(status -> {
+            List<Member> newMembers = new ArrayList<>();
+            for (int i = 0; i < memberCount; i++) {
+                newMembers.add(new Member("member" + i, i % 50));
+            }
+            return memberRepository.saveAllBatched(newMembers, 1000);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //findAll 로 전체를 올려두고 flush 만 측정한다
+    @Setup(Level.Invocation)
+    public void loadAll() {
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        members = em.createQuery("select m from Member m", Member.class).getResultList();
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public int flushNothingDirty() {
+        em.flush();
+        return members.size();
+    }
+
+    @Benchmark
+    public int flushFewDirty() {
+        for (int i = 0; i < DIRTY_COUNT; i++) {
+            Member member = members.get(i * (members.size() / DIRTY_COUNT));
+            member.setAge(member.getAge() + 1);
+        }
+        em.flush();
+        return members.size();
+    }
+}
@@ -0,0 +1,101 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberExportDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberBulkLoadResult;
+import study.datajpa.repository.MemberBulkLoader;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//초기 적재 경로 비교 - 한번에 ROWS 명씩 저장한다
+//  saveAll          : 스프링 데이터 JPA 기본 (트랜잭션 하나, 영속성 컨텍스트를 비우지 않는다)
+//  saveAllBatched   : 1000 명마다 flush / clear
+//  bulkLoad         : MemberBulkLoader (엔티티 없이 JDBC 배치)
+//결과의 rows 가 초당 저장한 회원 수
+//./gradlew jmh -PjmhInclude=MemberBulkLoadBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MemberBulkLoadBenchmark {
+
+    static final int ROWS = 10_000;
+    static final int TEAM_COUNT = 10;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberBulkLoader memberBulkLoader;
+    TransactionTemplate transactionTemplate;
+    List<Team> teams;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("member-bulk-load");
+        memberRepository = context.getBean(MemberRepository.class);
+        memberBulkLoader = context.getBean(MemberBulkLoader.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        teams = transactionTemplate.execute(status -> {
+            List<Team> saved = new ArrayList<>();
+            for (int i = 0; i < TEAM_COUNT; i++) {
+                saved.add(teamRepository.save(new Team("team" + i)));
+            }
+            return saved;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class LoadCounters {
+        public long rows;
+    }
+
+    @Benchmark
+    public List<Member> saveAll(LoadCounters counters) {
+        List<Member> saved = transactionTemplate.execute(status -> memberRepository.saveAll(members()));
+        counters.rows += saved.size();
+        return saved;
+    }
+
+    @Benchmark
+    public int saveAllBatched(LoadCounters counters) {
+        int saved = memberRepository.saveAllBatched(members(), 1000);
+        counters.rows += saved;
+        return saved;
+    }
+
+    @Benchmark
+    public MemberBulkLoadResult bulkLoad(LoadCounters counters) {
+        MemberBulkLoadResult result = memberBulkLoader.load(IntStream.range(0, ROWS)
+                .mapToObj(i -> new MemberExportDto(null, "member" + i, i % 100, "team" + (i % TEAM_COUNT))));
+        counters.rows += result.getRows();
+        return result;
+    }
+
+    private List<Member> members() {
+        List<Member> members = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            //changeTeam 을 쓰면 분리된 팀의 members 에 계속 쌓이기 때문에 연관관계만 건다
+            Member member = new Member("member" + i, i % 100);
+            member.setTeam(teams.get(i % TEAM_COUNT));
+            members.add(member);
+        }
+        return members;
+    }
+}
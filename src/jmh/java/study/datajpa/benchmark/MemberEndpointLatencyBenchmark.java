@@ -0,0 +1,90 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//동시 요청이 많을 때 요청당 스레드 방식(/members/blocking) 과 JpaExecutor 방식(/members) 의 응답시간 분포 비교
+//SampleTime 모드라서 결과에 p0.99 응답시간이 같이 나온다.
+//톰캣 스레드를 요청 수보다 적게 잡아서 요청 스레드가 모자랄 때의 차이를 본다.
+//./gradlew jmh -PjmhInclude=MemberEndpointLatencyBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(200)
+@Fork(1)
+public class MemberEndpointLatencyBenchmark {
+
+    static final int MEMBER_COUNT = 1_000;
+
+    ConfigurableApplicationContext context;
+    String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startWeb("member-endpoint",
+                "server.tomcat.max-threads=50",
+                "datajpa.web.jpa-executor.max-concurrency=10");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        MemberRepository memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        context.getBean(TransactionTemplate.class).execute(status -> {
+            Team team = teamRepository.save(new Team("endpointTeam"));
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                members.add(new Member("member" + i, i % 50, team));
+            }
+            return memberRepository.saveAllBatched(members, 500);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int threadPerRequest() throws IOException {
+        return get("/members/blocking?username=" + randomUsername());
+    }
+
+    @Benchmark
+    public int jpaExecutor() throws IOException {
+        return get("/members?username=" + randomUsername());
+    }
+
+    private String randomUsername() {
+        return "member" + ThreadLocalRandom.current().nextInt(MEMBER_COUNT);
+    }
+
+    //응답을 끝까지 읽어야 keep-alive 커넥션이 재사용된다
+    private int get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            int total = 0;
+            while (in != null && (read = in.read(buffer)) != -1) {
+                total += read;
+            }
+            return total;
+        }
+    }
+}
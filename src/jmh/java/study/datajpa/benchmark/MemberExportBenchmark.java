@@ -0,0 +1,93 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberExportFormat;
+import study.datajpa.repository.MemberExportResult;
+import study.datajpa.repository.MemberExporter;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//파티션(작업 스레드) 수에 따른 회원 내보내기 처리량 (MemberExporter)
+//결과의 rows 가 초당 내보낸 행 수, bytes 가 초당 쓴 바이트 수
+//파티션 수를 1 에서 코어 수까지 늘렸을 때 처리량이 얼마나 같이 늘어나는지 본다.
+//./gradlew jmh -PjmhInclude=MemberExportBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MemberExportBenchmark {
+
+    static final int MEMBER_COUNT = 200_000;
+    static final int TEAM_COUNT = 100;
+
+    @Param({"1", "2", "4", "8"})
+    int partitions;
+
+    @Param({"CSV", "COLUMNAR"})
+    MemberExportFormat format;
+
+    ConfigurableApplicationContext context;
+    MemberExporter memberExporter;
+    Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start("member-export-" + partitions + "-" + format,
+                "datajpa.export.workers=" + partitions,
+                "spring.datasource.hikari.maximum-pool-size=" + (partitions + 2));
+        memberExporter = context.getBean(MemberExporter.class);
+        MemberRepository memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        directory = Files.createTempDirectory("member-export");
+
+        context.getBean(TransactionTemplate.class).execute(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < TEAM_COUNT; i++) {
+                teams.add(teamRepository.save(new Team("team" + i)));
+            }
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                members.add(new Member("member" + i, i % 100, teams.get(i % TEAM_COUNT)));
+            }
+            return memberRepository.saveAllBatched(members, 1000);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class ExportCounters {
+        public long rows;
+        public long bytes;
+    }
+
+    @Benchmark
+    public MemberExportResult export(ExportCounters counters) {
+        MemberExportResult result = memberExporter.export(directory, format, partitions);
+        counters.rows += result.getRows();
+        counters.bytes += result.getBytes();
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.MemberSummary;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.UsernameOnly;
+import study.datajpa.repository.UsernameOnlyDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//엔티티 조회와 프로젝션 조회의 연산당 할당량 비교 (gc.alloc.rate.norm)
+//엔티티는 영속성 컨텍스트 등록과 변경감지용 스냅샷까지 만들어야 한다.
+//./gradlew jmh -PjmhInclude=MemberProjectionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberProjectionBenchmark {
+
+    static final int MEMBER_COUNT = 1_000;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //엔티티만 2차 캐시 / 쿼리 캐시에서 꺼내오면 할당량 비교가 맞지 않는다
+        context = BenchmarkContext.start("member-projection",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        transactionTemplate.execute(status -> {
+            Team team = teamRepository.save(new Team("team"));
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                //같은 이름으로 저장해서 한번에 MEMBER_COUNT 건이 조회되게 한다
+                members.add(new Member("member", i % 50, team));
+            }
+            return memberRepository.saveAllBatched(members, 500);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> entity() {
+        return transactionTemplate.execute(status -> memberRepository.findProjectionsByUsername("member", Member.class));
+    }
+
+    @Benchmark
+    public List<UsernameOnly> interfaceProjection() {
+        return transactionTemplate.execute(status -> memberRepository.findProjectionsByUsername("member"));
+    }
+
+    @Benchmark
+    public List<UsernameOnlyDto> classProjection() {
+        return transactionTemplate.execute(status -> memberRepository.findProjectionsByUsername("member", UsernameOnlyDto.class));
+    }
+
+    @Benchmark
+    public List<Member> entityWithTeam() {
+        return transactionTemplate.execute(status -> memberRepository.findMemberFetchJoin());
+    }
+
+    @Benchmark
+    public List<MemberSummary> summaryProjection() {
+        return transactionTemplate.execute(status -> memberRepository.findMemberSummary());
+    }
+}
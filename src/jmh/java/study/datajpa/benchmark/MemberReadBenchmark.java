@@ -0,0 +1,134 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+//MemberRepository(스프링 데이터 JPA) 와 MemberJpaRepository(순수 JPA) 의 조회 경로 비교
+//쿼리 작성 방식(메서드 이름 / @Query / NamedQuery) 차이를 보기 위해 2차 캐시와 쿼리 캐시는 끈다
+//(켜두면 캐시 적중 여부를 재게 된다)
+//./gradlew jmh -PjmhInclude=MemberReadBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberReadBenchmark {
+
+    static final int TEAM_COUNT = 10;
+    static final int MEMBER_COUNT = 1_000;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate transactionTemplate;
+    Long memberId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("member-read",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        transactionTemplate.execute(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < TEAM_COUNT; i++) {
+                teams.add(teamRepository.save(new Team("team" + i)));
+            }
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                members.add(new Member("member" + i, i % 50, teams.get(i % TEAM_COUNT)));
+            }
+            return memberRepository.saveAllBatched(members, 500);
+        });
+        memberId = transactionTemplate.execute(status ->
+                memberRepository.findByUsername("member500").get(0).getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Member findByIdSpringData() {
+        return transactionTemplate.execute(status -> memberRepository.findById(memberId).get());
+    }
+
+    @Benchmark
+    public Member findByIdJpa() {
+        return transactionTemplate.execute(status -> memberJpaRepository.find(memberId));
+    }
+
+    //메서드 이름으로 만든 쿼리
+    @Benchmark
+    public List<Member> derivedQuery() {
+        return transactionTemplate.execute(status -> memberRepository.findByUsernameAndAgeGreaterThan("member500", 0));
+    }
+
+    //@Query 로 직접 정의한 쿼리
+    @Benchmark
+    public List<Member> declaredQuery() {
+        return transactionTemplate.execute(status -> memberRepository.findUser("member500", 0));
+    }
+
+    //@NamedQuery
+    @Benchmark
+    public List<Member> namedQuery() {
+        return transactionTemplate.execute(status -> memberRepository.findByUsername("member500"));
+    }
+
+    @Benchmark
+    public List<Member> fetchJoin() {
+        return transactionTemplate.execute(status -> memberRepository.findMemberFetchJoin());
+    }
+
+    @Benchmark
+    public List<Member> entityGraphFindAll() {
+        return transactionTemplate.execute(status -> memberRepository.findAll());
+    }
+
+    //DTO 로 바로 조회 vs 엔티티를 조회해서 DTO 로 변환
+    @Benchmark
+    public List<MemberDto> dtoProjection() {
+        return transactionTemplate.execute(status -> memberRepository.findMemberDto());
+    }
+
+    @Benchmark
+    public List<MemberDto> entityToDto() {
+        return transactionTemplate.execute(status -> memberRepository.findMemberFetchJoin().stream()
+                .map(m -> new MemberDto(m.getId(), m.getUsername(), m.getTeam().getName()))
+                .collect(toList()));
+    }
+
+    @Benchmark
+    public Page<Member> pagingSpringData() {
+        PageRequest pageRequest = PageRequest.of(5, 20, Sort.by(Sort.Direction.DESC, "username"));
+        return transactionTemplate.execute(status -> memberRepository.findByAge(10, pageRequest));
+    }
+
+    @Benchmark
+    public List<Member> pagingJpa() {
+        return transactionTemplate.execute(status -> memberJpaRepository.findByPage(10, 0, 20));
+    }
+}
@@ -0,0 +1,108 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//동적 검색(MemberRepository.search) 의 쿼리 플랜 캐시 적중률
+//literal_handling_mode 가 auto 이면 숫자 조건이 SQL 에 값으로 들어가서 값마다 새 플랜을 만들고
+//bind 이면 조건 조합(최대 16가지) 만큼만 플랜을 만든다.
+//결과의 planCacheHits / planCacheMisses 로 적중률을 본다.
+//./gradlew jmh -PjmhInclude=MemberSearchPlanCacheBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberSearchPlanCacheBenchmark {
+
+    static final int MEMBER_COUNT = 10_000;
+    static final int TEAM_COUNT = 20;
+
+    @Param({"auto", "bind"})
+    String literalHandlingMode;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("member-search-" + literalHandlingMode,
+                "spring.jpa.properties.hibernate.criteria.literal_handling_mode=" + literalHandlingMode,
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                //플랜 캐시가 넘치는 상황을 보기 위해 작게 잡는다
+                "spring.jpa.properties.hibernate.query.plan_cache_max_size=64");
+        memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        context.getBean(TransactionTemplate.class).execute(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < TEAM_COUNT; i++) {
+                teams.add(teamRepository.save(new Team("team" + i)));
+            }
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                members.add(new Member("member" + i, i % 100, teams.get(i % TEAM_COUNT)));
+            }
+            return memberRepository.saveAllBatched(members, 1000);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PlanCacheCounters {
+        public long planCacheHits;
+        public long planCacheMisses;
+    }
+
+    //조건마다 절반 확률로 넣고 값은 무작위
+    @Benchmark
+    public Page<Member> search(PlanCacheCounters counters) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if (random.nextBoolean()) {
+            condition.setUsername("member" + random.nextInt(MEMBER_COUNT));
+        }
+        if (random.nextBoolean()) {
+            condition.setAgeGoe(random.nextInt(50));
+        }
+        if (random.nextBoolean()) {
+            condition.setAgeLoe(50 + random.nextInt(50));
+        }
+        if (random.nextBoolean()) {
+            condition.setTeamName("team" + random.nextInt(TEAM_COUNT));
+        }
+
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long misses = statistics.getQueryPlanCacheMissCount();
+        Page<Member> page = memberRepository.search(condition,
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "username")));
+        counters.planCacheHits += statistics.getQueryPlanCacheHitCount() - hits;
+        counters.planCacheMisses += statistics.getQueryPlanCacheMissCount() - misses;
+        return page;
+    }
+}
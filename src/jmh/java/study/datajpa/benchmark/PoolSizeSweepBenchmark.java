@@ -0,0 +1,101 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.support.OptimisticLockRetryExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//커넥션 풀 크기별 MemberRepository 처리량과 응답시간 분포(p99) 비교
+//perf 프로파일 설정에 풀 크기만 바꿔가며 요청 스레드(32개)보다 풀이 작을때 / 같을때 / 클때를 본다.
+//./gradlew jmh -PjmhInclude=PoolSizeSweepBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Threads(32)
+@Fork(1)
+public class PoolSizeSweepBenchmark {
+
+    static final int MEMBER_COUNT = 10_000;
+
+    @Param({"2", "4", "8", "16", "32"})
+    int poolSize;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate transactionTemplate;
+    OptimisticLockRetryExecutor optimisticLockRetryExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("pool-sweep-" + poolSize,
+                "spring.profiles.active=perf",
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "spring.datasource.hikari.minimum-idle=" + poolSize,
+                "spring.datasource.hikari.connection-timeout=30000");
+        memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        optimisticLockRetryExecutor = context.getBean(OptimisticLockRetryExecutor.class);
+
+        transactionTemplate.execute(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                teams.add(teamRepository.save(new Team("team" + i)));
+            }
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                members.add(new Member("member" + i, i % 50, teams.get(i % teams.size())));
+            }
+            return memberRepository.saveAllBatched(members, 1000);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //인덱스로 한건 조회
+    @Benchmark
+    public List<Member> findByUsername() {
+        return memberRepository.findByUsername("member" + ThreadLocalRandom.current().nextInt(MEMBER_COUNT));
+    }
+
+    //페이징 - 조회 + 카운트 쿼리
+    @Benchmark
+    public Page<Member> findByAgePage() {
+        return memberRepository.findByAge(ThreadLocalRandom.current().nextInt(50),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "username")));
+    }
+
+    //조회 후 수정 - 트랜잭션이 커넥션을 잡고 있는 시간이 길다
+    //여러 스레드가 같은 회원을 고르면 @Version 충돌이 나기 때문에 다시 실행하는 시간까지 포함해서 잰다
+    @Benchmark
+    public Member readModifyWrite() {
+        String username = "member" + ThreadLocalRandom.current().nextInt(MEMBER_COUNT);
+        return optimisticLockRetryExecutor.execute(() -> {
+            Member member = memberRepository.findByUsername(username).get(0);
+            member.setAge((member.getAge() + 1) % 50);
+            return member;
+        });
+    }
+
+    @Benchmark
+    public Member save() {
+        return memberRepository.save(new Member("sweepMember", 30));
+    }
+}
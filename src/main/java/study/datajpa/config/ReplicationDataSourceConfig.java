@@ -0,0 +1,84 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+//datajpa.datasource.replica.url 이 있으면 읽기 전용 트랜잭션을 레플리카 DB 로 보낸다
+//없으면 스프링 부트가 만든 DataSource 하나만 쓴다.
+//프라이머리, 레플리카 커넥션 풀은 빈으로 등록하지 않아서 p6spy 는 라우팅 DataSource 한 곳에만 걸린다.
+//대신 스프링이 풀을 닫아주지 않기 때문에 컨텍스트가 내려갈 때 라우팅 DataSource 빈이 두 풀을 닫는다.
+@Configuration
+@ConditionalOnProperty(prefix = "datajpa.datasource.replica", name = "url")
+public class ReplicationDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        //계정을 따로 주지 않으면 프라이머리와 같은 계정을 쓴다
+        HikariDataSource replica = new HikariDataSource();
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setJdbcUrl(environment.getRequiredProperty("datajpa.datasource.replica.url"));
+        replica.setUsername(environment.getProperty("datajpa.datasource.replica.username", properties.determineUsername()));
+        replica.setPassword(environment.getProperty("datajpa.datasource.replica.password", properties.determinePassword()));
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+        binder.bind("datajpa.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+
+        //풀이 빈이 아니라서 스프링 부트가 hikaricp.* 지표를 붙여주지 않기 때문에 직접 붙인다
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricRegistry(registry);
+            replica.setMetricRegistry(registry);
+        });
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicationRoutingDataSource.PRIMARY, primary);
+        targets.put(ReplicationRoutingDataSource.REPLICA, replica);
+
+        ReplicationRoutingDataSource routing = new ReplicationRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new ReplicationDataSource(routing, primary, replica);
+    }
+
+    static class ReplicationDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final HikariDataSource primary;
+        private final HikariDataSource replica;
+
+        ReplicationDataSource(DataSource routing, HikariDataSource primary, HikariDataSource replica) {
+            super(routing);
+            this.primary = primary;
+            this.replica = replica;
+        }
+
+        @Override
+        public void close() {
+            try {
+                replica.close();
+            } finally {
+                primary.close();
+            }
+        }
+    }
+}
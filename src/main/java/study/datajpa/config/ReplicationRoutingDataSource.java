@@ -0,0 +1,17 @@
+package study.datajpa.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//읽기 전용 트랜잭션(@Transactional(readOnly = true))은 레플리카로, 나머지는 프라이머리로 보낸다
+//트랜잭션의 readOnly 여부는 커넥션을 얻은 뒤에 정해지기 때문에 LazyConnectionDataSourceProxy 로 감싸서 써야 한다.
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+    }
+}
@@ -0,0 +1,27 @@
+package study.datajpa.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.datajpa.repository.support.JpaExecutor;
+
+//StreamingResponseBody 같은 비동기 응답 작업도 JpaExecutor 에서 실행한다
+//스트리밍 응답은 응답을 다 쓸 때까지 커넥션을 잡고 있기 때문에 JPA 호출과 같은 동시 실행 제한을 받아야 한다.
+@Configuration
+@RequiredArgsConstructor
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+    private final JpaExecutor jpaExecutor;
+
+    @Value("${datajpa.web.async-timeout-millis:60000}")
+    private long asyncTimeoutMillis;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(jpaExecutor::execute));
+        configurer.setDefaultTimeout(asyncTimeoutMillis);
+    }
+}
@@ -0,0 +1,19 @@
+package study.datajpa.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+//JpaExecutor 나 MemberWriteBehindBuffer 의 대기 큐가 가득 차서 거절된 요청은 503 으로 응답해서 클라이언트가 나중에 다시 시도하게 한다
+@RestControllerAdvice
+public class JpaExecutorExceptionHandler {
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String rejected(RejectedExecutionException e){
+        return "too many concurrent requests";
+    }
+}
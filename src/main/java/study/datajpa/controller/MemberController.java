@@ -0,0 +1,133 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberSaveRequest;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.MemberWriteBehindBuffer;
+import study.datajpa.repository.support.JpaExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+//JPA 호출은 JpaExecutor 에서 실행하고 톰캣 요청 스레드는 바로 돌려준다 (CompletableFuture 반환)
+@RestController
+@RequestMapping("/members")
+@RequiredArgsConstructor
+public class MemberController {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int FLUSH_EVERY = 100;
+
+    private final MemberRepository memberRepository;
+    private final JpaExecutor jpaExecutor;
+    private final ObjectProvider<MemberWriteBehindBuffer> writeBehindBuffers;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<MemberDto>> findMember(@PathVariable("id") Long id){
+        return jpaExecutor.readOnly(() -> memberRepository.findById(id)
+                .map(MemberController::toDto)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    @GetMapping(params = "username")
+    public CompletableFuture<List<MemberDto>> findByUsername(@RequestParam("username") String username){
+        return jpaExecutor.readOnly(() -> toDtos(memberRepository.findByUsername(username)));
+    }
+
+    //비교용 - 톰캣 요청 스레드에서 그대로 조회한다 (요청당 스레드 하나)
+    @GetMapping(value = "/blocking", params = "username")
+    public List<MemberDto> findByUsernameBlocking(@RequestParam("username") String username){
+        return jpaExecutor.inReadOnlyTransaction(() -> toDtos(memberRepository.findByUsername(username)));
+    }
+
+    @GetMapping(params = "age")
+    public CompletableFuture<Page<MemberDto>> findByAge(@RequestParam("age") int age,
+                                                       @PageableDefault(size = 20) Pageable pageable){
+        return jpaExecutor.readOnly(() -> memberRepository.findByAge(age, pageable).map(MemberController::toDto));
+    }
+
+    //검색 조건은 쿼리 파라미터로 받는다 (ex. /members/search?ageGoe=10&teamName=teamA&sort=username,desc)
+    @GetMapping("/search")
+    public CompletableFuture<Page<MemberDto>> search(MemberSearchCondition condition,
+                                                     @PageableDefault(size = 20) Pageable pageable){
+        return jpaExecutor.readOnly(() -> memberRepository.search(condition, pageable).map(MemberController::toDto));
+    }
+
+    //write-behind 가 켜져 있으면 큐에 넣고 커밋된 뒤에 응답한다 - 요청 스레드는 저장을 기다리지 않는다
+    //큐가 가득 차서 거절되면 503 (JpaExecutorExceptionHandler)
+    @PostMapping
+    public CompletableFuture<MemberDto> save(@RequestBody MemberSaveRequest request){
+        Member member = new Member(request.getUsername(), request.getAge());
+        MemberWriteBehindBuffer writeBehindBuffer = writeBehindBuffers.getIfAvailable();
+        if (writeBehindBuffer != null) {
+            return writeBehindBuffer.enqueue(member).thenApply(MemberController::toDto);
+        }
+        return CompletableFuture.completedFuture(toDto(memberRepository.save(member)));
+    }
+
+    //전체 회원을 한줄에 하나씩 JSON 으로 내려준다 (NDJSON)
+    //커서에서 fetch size 만큼씩 읽어서 바로 쓰기 때문에 결과 전체를 메모리에 올리지 않는다.
+    //클라이언트가 느리게 읽으면 소켓 쓰기가 막히고 그동안 커서도 더 읽지 않는다 (backpressure)
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAll(){
+        StreamingResponseBody body = out -> jpaExecutor.inReadOnlyTransaction(() -> {
+            try (Stream<MemberDto> members = memberRepository.streamMemberDto(STREAM_FETCH_SIZE)) {
+                writeLines(members, out);
+            }
+            return null;
+        });
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeLines(Stream<MemberDto> members, OutputStream out) {
+        int[] written = {0};
+        members.forEach(member -> {
+            try {
+                //writeValue(out, ..) 는 쓰고나서 out 을 닫기 때문에 바이트로 만들어서 쓴다
+                out.write(objectMapper.writeValueAsBytes(member));
+                out.write('\n');
+                if (++written[0] % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static List<MemberDto> toDtos(List<Member> members) {
+        return members.stream().map(MemberController::toDto).collect(toList());
+    }
+
+    private static MemberDto toDto(Member member) {
+        String teamName = member.getTeam() == null ? null : member.getTeam().getName();
+        return new MemberDto(member.getId(), member.getUsername(), teamName);
+    }
+}
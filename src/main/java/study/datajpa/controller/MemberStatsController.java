@@ -0,0 +1,39 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.repository.MemberAggregateSnapshot;
+
+import java.util.Map;
+
+//팀별 회원 수 / 나이 구간별 회원 수 조회 - 바뀐게 없으면 쿼리 없이 메모리에서 돌려준다
+@RestController
+@RequiredArgsConstructor
+public class MemberStatsController {
+
+    private final MemberAggregateSnapshot memberAggregateSnapshot;
+
+    @GetMapping("/stats/members/teams")
+    public Map<Long, Long> countMembersPerTeam(){
+        return memberAggregateSnapshot.countMembersPerTeam().toMap();
+    }
+
+    //구간 수만큼 배열을 만들기 때문에 요청 값을 먼저 확인한다
+    //마지막 구간은 MAX_AGE 보다 먼저 시작해야 한다 (그 이상 나이는 한 칸에 모여 있다)
+    @GetMapping("/stats/members/ages")
+    public long[] ageHistogram(@RequestParam(defaultValue = "10") int bucketWidth,
+                               @RequestParam(defaultValue = "10") int bucketCount){
+        if (bucketWidth <= 0 || bucketCount <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bucketWidth and bucketCount must be positive");
+        }
+        if ((long) bucketWidth * (bucketCount - 1) > MemberAggregateSnapshot.MAX_AGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "bucketWidth * (bucketCount - 1) must not exceed " + MemberAggregateSnapshot.MAX_AGE);
+        }
+        return memberAggregateSnapshot.ageHistogram(bucketWidth, bucketCount);
+    }
+}
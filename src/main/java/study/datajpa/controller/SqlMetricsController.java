@@ -0,0 +1,28 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.monitoring.SqlMetrics;
+
+import java.util.List;
+import java.util.Map;
+
+//리파지토리 메서드 별 SQL 통계 조회
+@RestController
+@RequiredArgsConstructor
+public class SqlMetricsController {
+
+    private final SqlMetrics sqlMetrics;
+
+    @GetMapping("/stats/sql")
+    public List<Map<String, Object>> sqlStats(){
+        return sqlMetrics.snapshot();
+    }
+
+    @DeleteMapping("/stats/sql")
+    public void resetSqlStats(){
+        sqlMetrics.reset();
+    }
+}
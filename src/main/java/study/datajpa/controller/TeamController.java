@@ -0,0 +1,57 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.dto.TeamDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.support.JpaExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.stream.Collectors.toList;
+
+//팀 조회 - JPA 호출은 JpaExecutor 에서 실행한다 (MemberController 참고)
+@RestController
+@RequestMapping("/teams")
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamRepository teamRepository;
+    private final JpaExecutor jpaExecutor;
+
+    @GetMapping
+    public CompletableFuture<List<TeamDto>> findAll(){
+        return jpaExecutor.readOnly(() -> teamRepository.findAllWithMembers().stream()
+                .map(TeamController::toDto)
+                .collect(toList()));
+    }
+
+    //팀은 DB 에서 페이징하고 members 는 페이지의 팀들만 따로 가져온다
+    @GetMapping("/page")
+    public CompletableFuture<Page<TeamDto>> findPage(@PageableDefault(size = 20) Pageable pageable){
+        return jpaExecutor.readOnly(() -> teamRepository.findPageWithMembers(pageable).map(TeamController::toDto));
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<TeamDto>> findTeam(@PathVariable("id") Long id){
+        return jpaExecutor.readOnly(() -> teamRepository.findById(id)
+                .map(TeamController::toDto)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    private static TeamDto toDto(Team team) {
+        List<String> memberNames = team.getMembers().stream().map(Member::getUsername).collect(toList());
+        return new TeamDto(team.getId(), team.getName(), memberNames);
+    }
+}
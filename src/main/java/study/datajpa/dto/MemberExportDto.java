@@ -0,0 +1,20 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+//내보내기용 회원 + 팀 한 줄 (MemberExporter)
+@Data
+public class MemberExportDto {
+
+    private Long id;
+    private String username;
+    private int age;
+    private String teamName;
+
+    public MemberExportDto(Long id, String username, int age, String teamName) {
+        this.id = id;
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+}
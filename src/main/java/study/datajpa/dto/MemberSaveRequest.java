@@ -0,0 +1,11 @@
+package study.datajpa.dto;
+
+
+import lombok.Data;
+
+@Data
+public class MemberSaveRequest {
+
+    private String username;
+    private int age;
+}
@@ -0,0 +1,14 @@
+package study.datajpa.dto;
+
+
+import lombok.Data;
+
+//회원 검색 조건 - null 인 조건은 검색에 쓰지 않는다
+@Data
+public class MemberSearchCondition {
+
+    private String username;
+    private Integer ageGoe;
+    private Integer ageLoe;
+    private String teamName;
+}
@@ -0,0 +1,20 @@
+package study.datajpa.dto;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TeamDto {
+
+    private Long id;
+    private String name;
+    private List<String> memberNames;
+
+    public TeamDto(Long id, String name, List<String> memberNames) {
+        this.id = id;
+        this.name = name;
+        this.memberNames = memberNames;
+    }
+}
@@ -1,14 +1,40 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
 @Entity
+//age 로 찾는 조회 (findByPage, findByAge, 키셋 페이징, bulkAgePlus 의 age >= ?) 는 idx_member_age_username_id 를 타고
+//키셋 페이징 (age = ? order by username desc, member_id) 은 정렬 없이 인덱스 범위 검색을 한다.
+//username 으로 찾는 조회 (findByUsername, findByNames, findByUsernameAndAgeGreaterThan) 는 idx_member_username_age 를 탄다.
+//조회 쿼리가 테이블 전체를 읽지 않는지는 MemberQueryPlanTest 에서 EXPLAIN 으로 확인한다.
+@Table(indexes = {
+        @Index(name = "idx_member_age_username_id", columnList = "age, username desc, member_id"),
+        @Index(name = "idx_member_username_age", columnList = "username, age")
+})
+//쿼리 캐시에는 결과 식별자만 저장되고 엔티티는 2차 캐시에서 꺼내온다
 @NamedQuery(
         name = "Member.findByUsername",
-        query = "select m from Member m where m.username = :username"
+        query = "select m from Member m where m.username = :username",
+        hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")
 )
+//호출할 때 고르는 조회 범위 (MemberFetchProfile)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Member.summary"),
+        @NamedEntityGraph(name = "Member.withTeam", attributeNodes = @NamedAttributeNode("team"))
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(MemberDataChangeListener.class)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","username","age"})
@@ -16,13 +42,27 @@ import javax.persistence.*;
 public class Member {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_seq_generator")
+    @GenericGenerator(
+            name = "member_seq_generator",
+            strategy = "study.datajpa.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq")
+    )
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    //동시에 같은 회원을 수정하면 나중에 커밋하는 쪽이 OptimisticLockException 으로 실패한다 (갱신 분실 방지)
+    //벌크 수정 쿼리는 버전을 직접 올려야 한다 (MemberMutations)
+    @Version
+    private Long version;
+
+    //바이트코드 향상(build.gradle)으로 프록시 대신 필드를 처음 읽을 때 팀을 로딩한다
+    //프록시와 달리 getTeam() 만 불러도 select 가 나가기 때문에 (team.getId() 만 봐도 마찬가지)
+    //목록을 DTO 로 바꾸면서 팀을 읽는 조회는 팀을 같이 가져와야 한다 (MemberRepository 의 @EntityGraph)
     @ManyToOne(fetch = FetchType.LAZY)
+    @LazyToOne(LazyToOneOption.NO_PROXY)
     @JoinColumn(name = "team_id")
     private  Team team;
 
@@ -45,8 +85,21 @@ public class Member {
     }
 
     //팀을 변경하는 비지니스 로직
+    //연관관계의 주인은 Member.team 이라 DB 에는 team_id 만 바뀌면 된다.
+    //팀의 members 는 이미 메모리에 올라와 있을 때만 맞춰주고, 올라와 있지 않으면 초기화하지 않는다
+    //(멤버가 많은 팀에 한명 추가하려고 전체 멤버를 읽지 않도록)
     public void changeTeam(Team team){
+        if (this.team != null && isMembersLoaded(this.team)) {
+            this.team.getMembers().remove(this);
+        }
         this.team = team ;
-        team.getMembers().add(this);
+        if (isMembersLoaded(team)) {
+            team.getMembers().add(this);
+        }
+    }
+
+    //프록시인 팀은 getMembers() 만 호출해도 팀을 조회하기 때문에 팀부터 확인한다
+    private static boolean isMembersLoaded(Team team) {
+        return Hibernate.isInitialized(team) && Hibernate.isInitialized(team.getMembers());
     }
 }
@@ -0,0 +1,27 @@
+package study.datajpa.entity;
+
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//Member, Team 의 변경을 스프링 이벤트(MemberDataChangedEvent)로 알린다
+//스프링 부트가 하이버네이트에 스프링 빈 컨테이너를 설정해 주기 때문에 엔티티 리스너도 빈을 주입받을 수 있다.
+//flush 시점에 불리기 때문에 받는 쪽에서 커밋 이후에 처리해야 한다 (DtoQueryCache)
+public class MemberDataChangeListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public MemberDataChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        publisher.publishEvent(new MemberDataChangedEvent(Hibernate.getClass(entity), entity));
+    }
+}
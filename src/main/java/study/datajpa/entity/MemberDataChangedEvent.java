@@ -0,0 +1,22 @@
+package study.datajpa.entity;
+
+//Member 나 Team 이 저장, 수정, 삭제되었을 때 발행하는 이벤트
+//벌크 수정처럼 엔티티를 거치지 않고 바꾼 경우는 entity 가 null 이다.
+public class MemberDataChangedEvent {
+
+    private final Class<?> entityType;
+    private final Object entity;
+
+    public MemberDataChangedEvent(Class<?> entityType, Object entity) {
+        this.entityType = entityType;
+        this.entity = entity;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    public Object getEntity() {
+        return entity;
+    }
+}
@@ -1,24 +1,53 @@
 package study.datajpa.entity;
 
 import lombok.*;
-
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+//호출할 때 고르는 조회 범위 (TeamFetchProfile)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Team.summary"),
+        @NamedEntityGraph(name = "Team.withMembers", attributeNodes = @NamedAttributeNode("members"))
+})
+//팀은 거의 바뀌지 않기 때문에 2차 캐시에 올려둔다
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(MemberDataChangeListener.class)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","name"})
 public class Team {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "team_seq_generator")
+    @GenericGenerator(
+            name = "team_seq_generator",
+            strategy = "study.datajpa.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq")
+    )
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    @Version
+    private Long version;
+
+    //여러 팀의 members 를 초기화할 때 팀마다 쿼리를 날리지 않고 in 절로 100개씩 묶어서 가져온다
+    //팀에 멤버가 들어오고 나가는 것은 팀을 수정한 것으로 보지 않는다 (팀 버전을 올리지 않는다)
+    //그렇지 않으면 같은 팀으로 동시에 이동하는 회원들이 팀 버전 충돌로 서로 실패한다.
+    @OptimisticLock(excluded = true)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
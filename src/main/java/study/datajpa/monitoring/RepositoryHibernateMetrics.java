@@ -0,0 +1,76 @@
+package study.datajpa.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//엔티티 로딩, 컬렉션 초기화를 현재 리파지토리 메서드 기준으로 센다
+//  datajpa.repository.entity.loads     : 엔티티를 읽은 횟수 (2차 캐시에서 읽은 것 포함, entity 태그)
+//  datajpa.repository.collection.loads : 지연로딩 컬렉션을 초기화한 횟수 (role 태그)
+//리파지토리 밖에서 일어난 지연로딩은 method=(unattributed) 로 모이기 때문에 이 값이 튀면 지연로딩 폭주를 의심한다.
+//하이버네이트 전체 통계(hibernate.*)와 커넥션 풀(hikaricp.*) 지표는 스프링 부트 액추에이터가 등록한다.
+@Component
+public class RepositoryHibernateMetrics {
+
+    public static final String ENTITY_LOADS = "datajpa.repository.entity.loads";
+    public static final String COLLECTION_LOADS = "datajpa.repository.collection.loads";
+
+    private final EntityManagerFactory emf;
+    private final MeterRegistry registry;
+    //이벤트마다 Counter.builder(..).register(..) 를 하면 태그 정렬, Meter.Id 생성, 레지스트리 조회를 매번 한다.
+    //method -> (entity 또는 role) -> 카운터 로 한번 만든 카운터를 다시 쓴다.
+    private final ConcurrentMap<String, ConcurrentMap<String, Counter>> entityLoads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, Counter>> collectionLoads = new ConcurrentHashMap<>();
+
+    public RepositoryHibernateMetrics(EntityManagerFactory emf, MeterRegistry registry) {
+        this.emf = emf;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry listeners = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) this::entityLoaded);
+        listeners.appendListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) this::collectionInitialized);
+    }
+
+    private void entityLoaded(PostLoadEvent event) {
+        counter(entityLoads, ENTITY_LOADS, "entity", event.getPersister().getEntityName()).increment();
+    }
+
+    private void collectionInitialized(InitializeCollectionEvent event) {
+        counter(collectionLoads, COLLECTION_LOADS, "role", event.getCollection().getRole()).increment();
+    }
+
+    //자바 8 의 computeIfAbsent 는 이미 있는 키도 잠그기 때문에 get 으로 먼저 찾는다
+    private Counter counter(ConcurrentMap<String, ConcurrentMap<String, Counter>> counters,
+                            String name, String tagKey, String tagValue) {
+        String method = RepositoryInvocationContext.current();
+        ConcurrentMap<String, Counter> byMethod = counters.get(method);
+        if (byMethod == null) {
+            byMethod = counters.computeIfAbsent(method, key -> new ConcurrentHashMap<>());
+        }
+        Counter counter = byMethod.get(tagValue);
+        if (counter == null) {
+            counter = byMethod.computeIfAbsent(tagValue, key -> Counter.builder(name)
+                    .tag("method", method)
+                    .tag(tagKey, tagValue)
+                    .register(registry));
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,68 @@
+package study.datajpa.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+//현재 스레드에서 실행중인 리파지토리 메서드 (ex. MemberRepository.findByAge)
+//JDBC 이벤트는 리파지토리를 모르기 때문에 SQL 이 어느 메서드에서 나갔는지 이 값으로 구분한다.
+//리파지토리가 다른 리파지토리를 호출하면 가장 안쪽 메서드가 현재 메서드가 된다.
+public final class RepositoryInvocationContext {
+
+    public static final String UNATTRIBUTED = "(unattributed)";
+
+    //리파지토리 밖에서만 도는 스레드에서도 current() 가 불리기 때문에 push 할 때만 만든다 - 없으면 null
+    private static final ThreadLocal<Deque<String>> METHODS = new ThreadLocal<>();
+    //조회 범위 프로필로 실행 중인 호출 깊이 (FetchProfiles) - 없으면 null
+    private static final ThreadLocal<int[]> PROFILE_DEPTH = new ThreadLocal<>();
+
+    private RepositoryInvocationContext() {
+    }
+
+    public static void push(String method) {
+        Deque<String> methods = METHODS.get();
+        if (methods == null) {
+            methods = new ArrayDeque<>();
+            METHODS.set(methods);
+        }
+        methods.push(method);
+    }
+
+    public static void pop() {
+        Deque<String> methods = METHODS.get();
+        methods.pop();
+        if (methods.isEmpty()) {
+            METHODS.remove();
+        }
+    }
+
+    //조회 범위 프로필을 붙인 메서드 (ex. MemberRepository.findAll[SUMMARY])
+    //컬럼 값 크기는 프로필끼리 비교할 때만 필요해서 이 안에서만 센다 (SqlMetricsListener)
+    public static void pushProfile(String method) {
+        push(method);
+        int[] depth = PROFILE_DEPTH.get();
+        if (depth == null) {
+            PROFILE_DEPTH.set(new int[]{1});
+        } else {
+            depth[0]++;
+        }
+    }
+
+    public static void popProfile() {
+        pop();
+        int[] depth = PROFILE_DEPTH.get();
+        if (depth != null && --depth[0] == 0) {
+            PROFILE_DEPTH.remove();
+        }
+    }
+
+    public static boolean isProfiling() {
+        return PROFILE_DEPTH.get() != null;
+    }
+
+    //리파지토리 밖에서 나간 SQL (지연로딩, flush 등) 은 UNATTRIBUTED
+    public static String current() {
+        Deque<String> methods = METHODS.get();
+        String method = methods != null ? methods.peek() : null;
+        return method != null ? method : UNATTRIBUTED;
+    }
+}
@@ -0,0 +1,66 @@
+package study.datajpa.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.repository.Repository;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//리파지토리 메서드가 실행되는 동안 RepositoryInvocationContext 에 메서드 이름을 올려둔다
+//스프링 데이터 JPA 리파지토리(MemberRepository)와 @Repository 클래스(MemberJpaRepository) 모두 대상이다.
+//메서드 실행 시간은 datajpa.repository.invocations 타이머로 남긴다 (실패하면 exception 태그)
+@Aspect
+@Component
+public class RepositoryMethodTracker {
+
+    public static final String INVOCATIONS = "datajpa.repository.invocations";
+
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    //애스펙트는 다른 빈보다 먼저 만들어지기 때문에 레지스트리 설정이 끝난 뒤에 쓰도록 처음 쓸 때 가져온다 (@Lazy)
+    public RepositoryMethodTracker(@Lazy MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))" +
+            " || execution(public * (@org.springframework.stereotype.Repository *).*(..))")
+    public Object track(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repositoryName = repositoryNames.computeIfAbsent(joinPoint.getTarget().getClass(), this::repositoryName);
+        String method = repositoryName + "." + joinPoint.getSignature().getName();
+        RepositoryInvocationContext.push(method);
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            RepositoryInvocationContext.pop();
+            Timer.builder(INVOCATIONS)
+                    .tag("method", method)
+                    .tag("exception", exception)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //스프링 데이터 JPA 리파지토리는 프록시라서 우리가 정의한 리파지토리 인터페이스 이름을 찾는다
+    private String repositoryName(Class<?> targetClass) {
+        for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            if (Repository.class.isAssignableFrom(candidate) && !candidate.getName().startsWith("org.springframework.")) {
+                return candidate.getSimpleName();
+            }
+        }
+        return ClassUtils.getUserClass(targetClass).getSimpleName();
+    }
+}
@@ -0,0 +1,83 @@
+package study.datajpa.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.BaseSessionEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+//하이버네이트 세션 이벤트를 현재 리파지토리 메서드 기준으로 기록한다
+//  datajpa.repository.connection.acquire : 커넥션 풀에서 커넥션을 얻기까지 기다린 시간
+//  datajpa.repository.cache.gets         : 2차 캐시 조회 (result=hit/miss)
+//  datajpa.repository.flushes            : flush 시간과 횟수
+//hibernate.session.events.auto 설정으로 하이버네이트가 세션마다 새로 만들기 때문에 스프링 빈을 주입받지 못하고
+//전역 레지스트리(Metrics.globalRegistry) 에 기록한다. 스프링 부트가 자기 레지스트리를 전역 레지스트리에 추가해 준다.
+public class RepositorySessionMetrics extends BaseSessionEventListener {
+
+    public static final String CONNECTION_ACQUIRE = "datajpa.repository.connection.acquire";
+    public static final String CACHE_GETS = "datajpa.repository.cache.gets";
+    public static final String FLUSHES = "datajpa.repository.flushes";
+
+    private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+    //커넥션을 얻을 때마다, 2차 캐시를 조회할 때마다 builder(..).register(..) 를 하지 않도록
+    //리스너는 세션마다 새로 만들어지기 때문에 메서드별 미터를 static 으로 들고 있는다 (RepositoryHibernateMetrics 와 같은 방식)
+    private static final ConcurrentMap<String, Timer> CONNECTION_ACQUIRE_TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counter> CACHE_HITS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counter> CACHE_MISSES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Timer> FLUSH_TIMERS = new ConcurrentHashMap<>();
+
+    private long connectionAcquisitionStart;
+    private long flushStart;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        connectionAcquisitionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        timer(CONNECTION_ACQUIRE_TIMERS, CONNECTION_ACQUIRE)
+                .record(System.nanoTime() - connectionAcquisitionStart, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        String method = RepositoryInvocationContext.current();
+        ConcurrentMap<String, Counter> counters = hit ? CACHE_HITS : CACHE_MISSES;
+        Counter counter = counters.get(method);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(method, key -> Counter.builder(CACHE_GETS)
+                    .tag("method", method)
+                    .tag("result", hit ? "hit" : "miss")
+                    .register(REGISTRY));
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void flushStart() {
+        flushStart = System.nanoTime();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        timer(FLUSH_TIMERS, FLUSHES)
+                .record(System.nanoTime() - flushStart, TimeUnit.NANOSECONDS);
+    }
+
+    //자바 8 의 computeIfAbsent 는 이미 있는 키도 잠그기 때문에 get 으로 먼저 찾는다
+    private static Timer timer(ConcurrentMap<String, Timer> timers, String name) {
+        String method = RepositoryInvocationContext.current();
+        Timer timer = timers.get(method);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(method, key -> Timer.builder(name)
+                    .tag("method", method)
+                    .register(REGISTRY));
+        }
+        return timer;
+    }
+}
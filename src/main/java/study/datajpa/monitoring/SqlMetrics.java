@@ -0,0 +1,136 @@
+package study.datajpa.monitoring;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//리파지토리 메서드 별 SQL 실행 통계 (실행 횟수, 실행 시간 분포, 조회한 row 수 / 바이트 수, 느린 쿼리 수)
+//조회 범위 프로필을 받는 메서드는 "메서드[프로필]" 로 따로 쌓인다 (FetchProfiles)
+//바이트 수는 프로필로 실행한 조회에서만 센다 - 나머지 메서드는 0 이다 (SqlMetricsListener)
+@Component
+public class SqlMetrics {
+
+    //실행 시간 히스토그램 구간 (ms), 마지막 구간은 그 이상 전부
+    static final long[] BUCKET_BOUNDS_MILLIS = {1, 5, 10, 25, 50, 100, 250, 500, 1000};
+
+    private final ConcurrentMap<String, MethodStats> stats = new ConcurrentHashMap<>();
+
+    public void recordStatement(String method, long elapsedNanos, boolean slow) {
+        stats(method).recordStatement(elapsedNanos, slow);
+    }
+
+    public void recordRow(String method) {
+        stats(method).rows.increment();
+    }
+
+    //결과셋에서 꺼낸 컬럼 값 크기 - 얼마나 많이 읽어오는지(과다 조회) 비교하기 위한 대략적인 값이다
+    public void recordValue(String method, Object value) {
+        long bytes = estimateBytes(value);
+        if (bytes > 0) {
+            stats(method).bytes.add(bytes);
+        }
+    }
+
+    //문자열은 UTF-16 (문자당 2 byte), 바이트 배열은 길이, 나머지 값은 8 byte 로 센다
+    static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return 8;
+    }
+
+    //전체 실행 시간이 긴 메서드 순서
+    public List<Map<String, Object>> snapshot() {
+        List<Map.Entry<String, MethodStats>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, MethodStats> entry) -> entry.getValue().totalNanos.sum()).reversed());
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, MethodStats> entry : entries) {
+            Map<String, Object> snapshot = entry.getValue().snapshot();
+            snapshot.put("method", entry.getKey());
+            result.add(snapshot);
+        }
+        return result;
+    }
+
+    public Map<String, Object> snapshot(String method) {
+        MethodStats methodStats = stats.get(method);
+        return methodStats == null ? null : methodStats.snapshot();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private MethodStats stats(String method) {
+        return stats.computeIfAbsent(method, key -> new MethodStats());
+    }
+
+    private static class MethodStats {
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder slowStatements = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+        private MethodStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void recordStatement(long elapsedNanos, boolean slow) {
+            statements.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (slow) {
+                slowStatements.increment();
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && elapsedMillis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            long count = statements.sum();
+            long total = totalNanos.sum();
+
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                String label = i < BUCKET_BOUNDS_MILLIS.length ? "<" + BUCKET_BOUNDS_MILLIS[i] + "ms" : ">=" + BUCKET_BOUNDS_MILLIS[i - 1] + "ms";
+                histogram.put(label, buckets[i].sum());
+            }
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("statements", count);
+            snapshot.put("rows", rows.sum());
+            snapshot.put("bytes", bytes.sum());
+            snapshot.put("slowStatements", slowStatements.sum());
+            snapshot.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(total));
+            snapshot.put("avgMillis", count == 0 ? 0.0 : total / (double) count / 1_000_000);
+            snapshot.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            snapshot.put("histogram", histogram);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.monitoring;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+//p6spy 가 가로챈 JDBC 이벤트를 현재 리파지토리 메서드 기준으로 SqlMetrics 에 기록한다
+//p6spy 스타터가 JdbcEventListener 빈을 자동으로 등록해 준다.
+//실행 시간은 datajpa.repository.sql 타이머로도 남긴다 (프로메테우스에서 메서드 별 최대 실행 시간 확인)
+//org.hibernate.SQL 디버그 로그 없이도 느린 쿼리(datajpa.sql.slow-query-threshold-ms 이상)는 경고 로그로 남긴다.
+@Slf4j
+@Component
+public class SqlMetricsListener extends SimpleJdbcEventListener {
+
+    public static final String SQL = "datajpa.repository.sql";
+
+    private final SqlMetrics sqlMetrics;
+    private final MeterRegistry registry;
+    private final long slowQueryThresholdNanos;
+
+    //p6spy 리스너는 DataSource 를 만들 때 같이 만들어지기 때문에 레지스트리는 처음 쓸 때 가져온다 (@Lazy)
+    public SqlMetricsListener(SqlMetrics sqlMetrics, @Lazy MeterRegistry registry,
+                              @Value("${datajpa.sql.slow-query-threshold-ms:200}") long slowQueryThresholdMillis) {
+        this.sqlMetrics = sqlMetrics;
+        this.registry = registry;
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String method = RepositoryInvocationContext.current();
+        boolean slow = timeElapsedNanos >= slowQueryThresholdNanos;
+        sqlMetrics.recordStatement(method, timeElapsedNanos, slow);
+        Timer.builder(SQL)
+                .tag("method", method)
+                .register(registry)
+                .record(timeElapsedNanos, TimeUnit.NANOSECONDS);
+        if (slow) {
+            log.warn("slow query {}ms in {}: {}",
+                    TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), method, statementInformation.getSqlWithValues());
+        }
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            sqlMetrics.recordRow(RepositoryInvocationContext.current());
+        }
+    }
+
+    //하이버네이트는 컬럼 별칭으로 읽지만 드라이버에 따라 순번으로 읽기도 해서 둘 다 받는다
+    //모든 row 의 모든 컬럼마다 불리기 때문에 조회 범위 프로필로 실행 중일 때만 기록한다 (FetchProfiles)
+    @Override
+    public void onAfterResultSetGet(ResultSetInformation resultSetInformation, String columnLabel, Object value, SQLException e) {
+        if (RepositoryInvocationContext.isProfiling()) {
+            sqlMetrics.recordValue(RepositoryInvocationContext.current(), value);
+        }
+    }
+
+    @Override
+    public void onAfterResultSetGet(ResultSetInformation resultSetInformation, int columnIndex, Object value, SQLException e) {
+        if (RepositoryInvocationContext.isProfiling()) {
+            sqlMetrics.recordValue(RepositoryInvocationContext.current(), value);
+        }
+    }
+}
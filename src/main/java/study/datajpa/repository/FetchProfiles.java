@@ -0,0 +1,53 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
+import study.datajpa.monitoring.RepositoryInvocationContext;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//호출할 때 고른 조회 범위(MemberFetchProfile, TeamFetchProfile)를 쿼리에 적용한다
+//엔티티 그래프를 javax.persistence.fetchgraph / loadgraph 힌트로 넘긴다.
+//실행하는 동안 현재 리파지토리 메서드 이름 뒤에 [프로필] 을 붙여서 SqlMetrics 에 프로필 별 row / byte 수가 따로 쌓이게 한다
+//byte 수는 컬럼 값마다 세야 해서 프로필로 실행하는 동안에만 센다
+//(ex. MemberRepository.findAll[SUMMARY]) - 돌려받은 뒤 지연로딩으로 나가는 SQL 은 포함되지 않는다.
+class FetchProfiles {
+
+    private static final String HINT_CACHE_RETRIEVE_MODE = "javax.persistence.cache.retrieveMode";
+
+    private FetchProfiles() {
+    }
+
+    static <T> TypedQuery<T> apply(EntityManager em, TypedQuery<T> query, String graphName, EntityGraphType graphType) {
+        return query.setHint(graphType.getKey(), em.getEntityGraph(graphName));
+    }
+
+    //em.find 용 힌트 - 2차 캐시에 엔티티가 있으면 그래프를 무시하고 캐시의 엔티티를 돌려주기 때문에
+    //연관관계를 가져오는 그래프는 캐시를 건너뛰고 DB 에서 조인으로 읽는다 (컬럼만 읽는 그래프는 캐시를 그대로 쓴다)
+    //이미 영속성 컨텍스트에 있는 엔티티는 힌트와 상관없이 그대로 돌려준다.
+    static Map<String, Object> findHints(EntityManager em, String graphName, EntityGraphType graphType) {
+        EntityGraph<?> graph = em.getEntityGraph(graphName);
+        if (graph.getAttributeNodes().isEmpty()) {
+            return Collections.singletonMap(graphType.getKey(), graph);
+        }
+        Map<String, Object> hints = new HashMap<>();
+        hints.put(graphType.getKey(), graph);
+        hints.put(HINT_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+        return hints;
+    }
+
+    static <T> T track(Enum<?> profile, Supplier<T> query) {
+        RepositoryInvocationContext.pushProfile(RepositoryInvocationContext.current() + "[" + profile.name() + "]");
+        try {
+            return query.get();
+        } finally {
+            RepositoryInvocationContext.popProfile();
+        }
+    }
+}
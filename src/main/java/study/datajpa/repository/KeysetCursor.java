@@ -0,0 +1,53 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import study.datajpa.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//키셋(seek) 페이징에서 마지막으로 읽은 행의 위치를 나타내는 커서
+//클라이언트에는 (id, username) 을 인코딩한 불투명한 토큰으로만 노출한다.
+@Getter
+public class KeysetCursor {
+
+    private final String username;
+    private final Long id;
+
+    public KeysetCursor(String username, Long id) {
+        this.username = username;
+        this.id = id;
+    }
+
+    public static KeysetCursor of(Member member) {
+        return new KeysetCursor(member.getUsername(), member.getId());
+    }
+
+    //토큰이 없으면 첫 페이지
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid continuation token: " + token, e);
+        }
+        int separator = decoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("invalid continuation token: " + token);
+        }
+        try {
+            Long id = Long.valueOf(decoded.substring(0, separator));
+            return new KeysetCursor(decoded.substring(separator + 1), id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid continuation token: " + token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = id + ":" + username;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
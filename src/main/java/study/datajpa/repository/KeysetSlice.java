@@ -0,0 +1,30 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+//Slice 에 다음 페이지를 조회할 수 있는 continuation token 을 더한 결과
+//다음 페이지가 없으면 nextToken 은 null 이다.
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    private final String nextToken;
+    private final boolean first;
+
+    public KeysetSlice(List<T> content, Pageable pageable, String nextToken, boolean first) {
+        super(content, pageable, nextToken != null);
+        this.nextToken = nextToken;
+        this.first = first;
+    }
+
+    //키셋 페이징에는 페이지 번호가 없기 때문에 토큰 없이 조회한 경우만 첫 페이지로 본다
+    @Override
+    public boolean hasPrevious() {
+        return !first;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+}
@@ -0,0 +1,100 @@
+package study.datajpa.repository;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.MemberDataChangedEvent;
+import study.datajpa.repository.support.AfterCommit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//팀별 / 나이별 회원 수 집계를 메모리에 들고 있다가 돌려준다
+//Member, Team 이 바뀌면 (MemberDataChangedEvent) 커밋된 뒤에 버리고 다음에 읽을 때 group by 쿼리로 다시 만든다.
+//바뀌지 않는 동안은 쿼리 없이 배열에서 바로 읽는다.
+//
+//엔티티 이벤트로 건수를 직접 더하고 빼지 않는 이유
+//  @PostUpdate 에서는 바뀌기 전 팀 / 나이를 알 수 없고, 벌크 수정은 엔티티 이벤트 없이 바뀐 행도 알려주지 않는다.
+//  롤백된 변경까지 더해지면 DB 와 맞지 않는 값이 계속 남는다.
+//돌려주는 배열은 여러 호출이 같이 쓰기 때문에 꺼낸 쪽에서 수정하면 안된다.
+@Component
+public class MemberAggregateSnapshot {
+
+    //countMembersByAge 의 마지막 칸 - 이 이상 나이는 모두 여기에 센다
+    public static final int MAX_AGE = MemberAggregates.MAX_AGE;
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    //버릴 때마다 올린다 - 다시 만드는 도중에 버려졌으면 만든 값을 저장하지 않는다
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public MemberAggregateSnapshot(MemberRepository memberRepository, PlatformTransactionManager transactionManager) {
+        this.memberRepository = memberRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        //호출한 쪽의 쓰기 트랜잭션에 참여하면 커밋 안된 변경이 집계에 들어가고, 롤백되면 버려지지도 않는다
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public TeamMemberCounts countMembersPerTeam() {
+        return current().teamCounts;
+    }
+
+    public long countMembers(long teamId) {
+        return current().teamCounts.get(teamId);
+    }
+
+    //index = 나이, 값 = 회원 수 (MAX_AGE 칸은 그 이상 나이 포함)
+    public long[] countMembersByAge() {
+        return current().countsByAge;
+    }
+
+    public long[] ageHistogram(int bucketWidth, int bucketCount) {
+        return MemberAggregates.histogram(current().countsByAge, bucketWidth, bucketCount);
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @EventListener
+    public void onDataChanged(MemberDataChangedEvent event) {
+        AfterCommit.runOnce(this, this::invalidate);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        //비어 있을 때 여러 스레드가 동시에 읽어도 쿼리는 한번만 나간다
+        synchronized (this) {
+            current = snapshot;
+            if (current != null) {
+                return current;
+            }
+            long loadingGeneration = generation.get();
+            //두 집계를 커밋된 데이터만 보는 별도의 트랜잭션에서 같이 읽는다
+            current = readOnlyTransaction.execute(status -> new Snapshot(
+                    memberRepository.countMembersPerTeam(), memberRepository.countMembersByAge()));
+            if (generation.get() == loadingGeneration) {
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private static class Snapshot {
+        private final TeamMemberCounts teamCounts;
+        private final long[] countsByAge;
+
+        private Snapshot(TeamMemberCounts teamCounts, long[] countsByAge) {
+            this.teamCounts = teamCounts;
+            this.countsByAge = countsByAge;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package study.datajpa.repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+//팀별 회원 수 / 나이별 회원 수 집계 - group by 를 DB 에서 하고 결과는 long 배열로 받는다
+//엔티티를 읽어서 자바에서 세면 회원 수 만큼 엔티티를 만들고 영속성 컨텍스트에 올리기 때문에
+//네이티브 쿼리로 (키, 건수) 행만 받아온다. 행 수는 팀 수 / 서로 다른 나이 수 (최대 MAX_AGE + 1) / 구간 수 만큼이다.
+class MemberAggregates {
+
+    private static final String COUNT_PER_TEAM =
+            "select m.team_id, count(*) from member m where m.team_id is not null group by m.team_id";
+
+    //나이는 검증하지 않은 입력이라 배열 길이를 나이로 정하지 않는다 - MAX_AGE 이상은 마지막 칸에 모은다
+    static final int MAX_AGE = 150;
+
+    private static final String COUNT_PER_AGE =
+            "select least(greatest(m.age, 0), " + MAX_AGE + "), count(*) from member m"
+                    + " group by least(greatest(m.age, 0), " + MAX_AGE + ")";
+
+    //구간 번호를 DB 에서 계산해서 구간 수 만큼의 행만 받는다
+    private static final String COUNT_PER_AGE_BUCKET =
+            "select b.bucket, count(*) from"
+                    + " (select least(greatest(m.age, 0) / :bucketWidth, :lastBucket) as bucket from member m) b"
+                    + " group by b.bucket";
+
+    private MemberAggregates() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static TeamMemberCounts countMembersPerTeam(EntityManager em) {
+        List<Object[]> rows = em.createNativeQuery(COUNT_PER_TEAM).getResultList();
+        long[] teamIds = new long[rows.size()];
+        long[] counts = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            teamIds[i] = ((Number) rows.get(i)[0]).longValue();
+            counts[i] = ((Number) rows.get(i)[1]).longValue();
+        }
+        return TeamMemberCounts.of(teamIds, counts);
+    }
+
+    //index = 나이, 값 = 회원 수 (길이는 MAX_AGE + 1) - 음수 나이는 0 살로, MAX_AGE 이상은 MAX_AGE 칸에 센다
+    @SuppressWarnings("unchecked")
+    static long[] countMembersByAge(EntityManager em) {
+        List<Object[]> rows = em.createNativeQuery(COUNT_PER_AGE).getResultList();
+        long[] countsByAge = new long[MAX_AGE + 1];
+        for (Object[] row : rows) {
+            countsByAge[((Number) row[0]).intValue()] += ((Number) row[1]).longValue();
+        }
+        return countsByAge;
+    }
+
+    //[0, bucketWidth), [bucketWidth, 2 * bucketWidth) ... 구간별 회원 수 - 마지막 구간은 그 이상 나이를 모두 포함한다
+    @SuppressWarnings("unchecked")
+    static long[] histogram(EntityManager em, int bucketWidth, int bucketCount) {
+        validateBuckets(bucketWidth, bucketCount);
+        List<Object[]> rows = em.createNativeQuery(COUNT_PER_AGE_BUCKET)
+                .setParameter("bucketWidth", bucketWidth)
+                .setParameter("lastBucket", bucketCount - 1)
+                .getResultList();
+        long[] buckets = new long[bucketCount];
+        for (Object[] row : rows) {
+            buckets[((Number) row[0]).intValue()] += ((Number) row[1]).longValue();
+        }
+        return buckets;
+    }
+
+    //countMembersByAge 결과로 구간을 나눈다 (MemberAggregateSnapshot)
+    static long[] histogram(long[] countsByAge, int bucketWidth, int bucketCount) {
+        validateBuckets(bucketWidth, bucketCount);
+        long[] buckets = new long[bucketCount];
+        for (int age = 0; age < countsByAge.length; age++) {
+            buckets[Math.min(age / bucketWidth, bucketCount - 1)] += countsByAge[age];
+        }
+        return buckets;
+    }
+
+    //마지막 구간은 MAX_AGE 보다 먼저 시작해야 MAX_AGE 칸에 모은 나이가 맞는 구간에 들어간다
+    //(구간 수도 MAX_AGE + 1 개를 넘지 못한다)
+    static void validateBuckets(int bucketWidth, int bucketCount) {
+        if (bucketWidth <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketWidth and bucketCount must be positive: "
+                    + bucketWidth + ", " + bucketCount);
+        }
+        if ((long) bucketWidth * (bucketCount - 1) > MAX_AGE) {
+            throw new IllegalArgumentException("last bucket must start at or below " + MAX_AGE + ": "
+                    + bucketWidth + " * " + (bucketCount - 1));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+
+//MemberRepository / MemberJpaRepository 가 같이 쓰는 대량 저장
+class MemberBatchWrites {
+
+    private MemberBatchWrites() {
+    }
+
+    //chunkSize 마다 flush / clear 를 해서 영속성 컨텍스트가 계속 커지지 않게 한다.
+    //insert 는 hibernate.jdbc.batch_size 에 맞춰 JDBC 배치로 묶여서 나간다.
+    //호출한 쪽의 트랜잭션 안에서 실행해야 한다.
+    static int saveAllBatched(EntityManager em, Iterable<Member> members, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        int count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            if (++count % chunkSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return count;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+//대량 적재 결과 - 넣은 회원 수와 걸린 시간
+@Getter
+@ToString
+public class MemberBulkLoadResult {
+
+    private final long rows;
+    private final long elapsedNanos;
+
+    MemberBulkLoadResult(long rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
@@ -0,0 +1,222 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberExportDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberDataChangedEvent;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.support.AfterCommit;
+import study.datajpa.repository.support.PageCountCache;
+
+import javax.persistence.EntityManager;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+//초기 적재용 대량 저장 - 엔티티를 만들지 않고 JDBC 배치 insert 로 바로 넣는다
+//saveAllBatched 는 회원마다 엔티티 생성, 영속성 컨텍스트 등록, 엔티티 리스너, 2차 캐시 처리를 거치지만
+//여기서는 한 행당 파라미터 네개를 묶어서 batch-size 개마다 executeBatch 한번만 한다.
+//
+//  식별자 : 행에 member_id 가 없으면 Member 의 식별자 생성기(pooled-lo 시퀀스)에서 받는다 - em.persist 와 같은 블록을 나눠 쓴다
+//           member_id 가 있으면 그대로 넣고 끝나면 시퀀스를 가장 큰 식별자 뒤로 옮긴다 (내보낸 파일을 빈 DB 에 다시 넣을 때)
+//           이미 나눠준 식별자 블록 안의 식별자는 IllegalArgumentException (전체 롤백) - 나중에 em.persist 가 같은 식별자를 쓰게 된다
+//  팀     : TeamRepository 에서 이름 -> 식별자 맵을 한번 만들어서 찾는다 - 없는 팀 이름이면 IllegalArgumentException (전체 롤백)
+//  버전   : 0 (엔티티로 처음 저장할 때와 같다)
+//
+//진행중인 트랜잭션이 있으면 그 트랜잭션에서, 없으면 새 트랜잭션 하나로 모두 넣는다.
+//엔티티 리스너를 거치지 않기 때문에 MemberDataChangedEvent 는 직접 알리고
+//커밋된 뒤에 Team.members 컬렉션 캐시와 쿼리 캐시, 페이징 카운트 캐시를 비운다.
+//호출한 쪽 영속성 컨텍스트에 이미 올라온 팀의 members 에는 새 회원이 보이지 않는다.
+@Slf4j
+@Component
+public class MemberBulkLoader {
+
+    private static final String INSERT =
+            "insert into member (member_id, username, age, team_id, version) values (?, ?, ?, ?, 0)";
+    private static final String SEQUENCE = "MEMBER_SEQ";
+
+    private final EntityManager em;
+    private final TeamRepository teamRepository;
+    private final PageCountCache pageCountCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final int defaultBatchSize;
+
+    public MemberBulkLoader(EntityManager em,
+                            TeamRepository teamRepository,
+                            PageCountCache pageCountCache,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${datajpa.bulk-load.batch-size:1000}") int defaultBatchSize) {
+        this.em = em;
+        this.teamRepository = teamRepository;
+        this.pageCountCache = pageCountCache;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    public MemberBulkLoadResult load(Iterator<MemberExportDto> rows) {
+        return load(rows, defaultBatchSize);
+    }
+
+    public MemberBulkLoadResult load(Stream<MemberExportDto> rows) {
+        try (Stream<MemberExportDto> stream = rows) {
+            return load(stream.iterator(), defaultBatchSize);
+        }
+    }
+
+    //MemberCsvReader 형식 (MemberExporter 의 CSV 를 그대로 넣을 수 있다)
+    public MemberBulkLoadResult loadCsv(Reader reader) {
+        return load(new MemberCsvReader(reader), defaultBatchSize);
+    }
+
+    public MemberBulkLoadResult load(Iterator<MemberExportDto> rows, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        long started = System.nanoTime();
+        long loaded = transaction.execute(status -> {
+            long count = insert(rows, batchSize);
+            eventPublisher.publishEvent(new MemberDataChangedEvent(Member.class, null));
+            AfterCommit.runOnce(this, this::evictCaches);
+            return count;
+        });
+        MemberBulkLoadResult result = new MemberBulkLoadResult(loaded, System.nanoTime() - started);
+        log.debug("member bulk load {}", result);
+        return result;
+    }
+
+    private long insert(Iterator<MemberExportDto> rows, int batchSize) {
+        Map<String, Long> teamIds = teamRepository.findIdsByName();
+        SharedSessionContractImplementor session = em.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator idGenerator = session.getFactory().getMetamodel()
+                .entityPersister(Member.class).getIdentifierGenerator();
+
+        long[] counts = new long[2];   //{넣은 행 수, 직접 준 식별자 중 가장 큰 값}
+        em.unwrap(Session.class).doWork(connection -> {
+            long sequenceHandedOut = sequenceHandedOut(connection);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                int pending = 0;
+                while (rows.hasNext()) {
+                    MemberExportDto row = rows.next();
+                    long id;
+                    if (row.getId() != null) {
+                        id = row.getId();
+                        //이 파일에서 생성한 식별자가 새 블록을 받았을 수 있어서 행마다 다시 본다
+                        long handedOut = Math.max(sequenceHandedOut, optimizerHandedOut(idGenerator));
+                        if (id <= handedOut) {
+                            throw new IllegalArgumentException("member_id " + id
+                                    + " is inside an id block already handed out (<= " + handedOut + ")");
+                        }
+                        counts[1] = Math.max(counts[1], id);
+                    } else {
+                        id = ((Number) idGenerator.generate(session, null)).longValue();
+                    }
+                    insert.setLong(1, id);
+                    insert.setString(2, row.getUsername());
+                    insert.setInt(3, row.getAge());
+                    if (row.getTeamName() == null) {
+                        insert.setNull(4, Types.BIGINT);
+                    } else {
+                        Long teamId = teamIds.get(row.getTeamName());
+                        if (teamId == null) {
+                            throw new IllegalArgumentException("unknown team name: " + row.getTeamName());
+                        }
+                        insert.setLong(4, teamId);
+                    }
+                    insert.addBatch();
+                    counts[0]++;
+                    if (++pending == batchSize) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+            }
+            if (counts[1] > 0) {
+                restartSequence(connection, counts[1]);
+            }
+        });
+        return counts[0];
+    }
+
+    //DB 시퀀스가 지금까지 나눠준 마지막 식별자 (다른 JVM 이 받아간 블록 포함)
+    //pooled-lo 는 시퀀스 값 v 를 받으면 [v, v + increment) 를 쓴다.
+    //시퀀스 문법이 DB 마다 달라서 지금은 H2 만 보고 다른 DB 는 이 JVM 의 블록 (optimizerHandedOut) 만 본다.
+    private long sequenceHandedOut(Connection connection) throws SQLException {
+        if (!isH2()) {
+            return 0;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "select current_value, increment from information_schema.sequences where sequence_name = '" + SEQUENCE + "'")) {
+            if (!resultSet.next()) {
+                return 0;
+            }
+            return resultSet.getLong(1) + resultSet.getLong(2) - 1;
+        }
+    }
+
+    //이 JVM 이 메모리에 받아둔 pooled-lo 블록의 마지막 식별자 - 아직 받은 블록이 없으면 0
+    private static long optimizerHandedOut(IdentifierGenerator idGenerator) {
+        if (!(idGenerator instanceof SequenceStyleGenerator)) {
+            return 0;
+        }
+        Optimizer optimizer = ((SequenceStyleGenerator) idGenerator).getOptimizer();
+        IntegralDataTypeHolder lastSourceValue = optimizer.getLastSourceValue();
+        if (lastSourceValue == null) {
+            return 0;
+        }
+        return lastSourceValue.makeValue().longValue() + optimizer.getIncrementSize() - 1;
+    }
+
+    //시퀀스를 직접 넣은 식별자 뒤로 옮긴다
+    //직접 준 식별자는 이미 나눠준 블록보다 크기 때문에 (insert 에서 확인) 항상 앞으로만 옮긴다.
+    private void restartSequence(Connection connection, long maxId) throws SQLException {
+        if (!isH2()) {
+            log.warn("member_seq was not moved past loaded id {} - only H2 is supported", maxId);
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter sequence " + SEQUENCE + " restart with " + (maxId + 1));
+        }
+        log.debug("member_seq restarted at {}", maxId + 1);
+    }
+
+    private boolean isH2() {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        return sessionFactory.getJdbcServices().getDialect() instanceof H2Dialect;
+    }
+
+    //JDBC 로 넣은 행은 하이버네이트가 모르기 때문에 캐시된 컬렉션 / 쿼리 결과를 직접 버린다
+    private void evictCaches() {
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getCache();
+        cache.evictCollectionData(Team.class.getName() + ".members");
+        cache.evictQueryRegions();
+        pageCountCache.evictAll();
+    }
+}
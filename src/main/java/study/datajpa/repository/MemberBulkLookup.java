@@ -0,0 +1,106 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+//username 목록으로 회원을 찾는 조회 - 목록 크기에 따라 방법을 바꾼다
+//  CHUNK_SIZE 이하 : in 절 한번 (hibernate.query.in_clause_parameter_padding 으로 파라미터 수를 2의 거듭제곱에 맞춰서 실행계획을 재사용한다)
+//  TEMP_TABLE_THRESHOLD 이하 : CHUNK_SIZE 씩 나눈 in 절 여러번 (DB 의 in 절 / 파라미터 개수 제한을 넘지 않게)
+//  그 이상 : 임시 테이블에 username 을 배치로 넣고 조인 한번
+//임시 테이블은 H2 에서만 쓰고 쓰기가 되는 트랜잭션이어야 한다.
+//findByUsernames 는 읽기 전용이 아닌 트랜잭션으로 선언해서 프라이머리에서 실행하지만
+//바깥의 읽기 전용 트랜잭션(레플리카 커넥션)에 참여하게 되면 임시 테이블 대신 청크 in 절로 조회한다.
+//모든 조회를 호출한 쪽의 영속성 컨텍스트에서 실행하기 때문에 이미 영속성 컨텍스트에 있는 회원은 같은 인스턴스가 반환된다.
+//청크를 다른 스레드에서 병렬로 조회하면 다른 영속성 컨텍스트의 인스턴스가 섞이기 때문에 순서대로 실행한다.
+class MemberBulkLookup {
+
+    //2의 거듭제곱이라 패딩해도 청크 크기를 넘지 않는다
+    static final int CHUNK_SIZE = 512;
+    static final int TEMP_TABLE_THRESHOLD = 8 * CHUNK_SIZE;
+
+    private static final String IN_QUERY = "select m from Member m where m.username in :names";
+    private static final String TEMP_TABLE = "member_lookup_username";
+
+    private MemberBulkLookup() {
+    }
+
+    static List<Member> findByUsernames(EntityManager em, Collection<String> usernames) {
+        List<String> names = distinct(usernames);
+        if (names.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (names.size() > TEMP_TABLE_THRESHOLD && supportsTempTable(em)
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return joinTempTable(em, names);
+        }
+        List<Member> members = new ArrayList<>();
+        for (int from = 0; from < names.size(); from += CHUNK_SIZE) {
+            List<String> chunk = names.subList(from, Math.min(names.size(), from + CHUNK_SIZE));
+            members.addAll(em.createQuery(IN_QUERY, Member.class)
+                    .setParameter("names", chunk)
+                    .getResultList());
+        }
+        return members;
+    }
+
+    //청크끼리 같은 username 이 겹치면 같은 회원이 두번 나오기 때문에 중복을 먼저 걸러낸다
+    private static List<String> distinct(Collection<String> usernames) {
+        LinkedHashSet<String> names = new LinkedHashSet<>(usernames);
+        names.remove(null);
+        return new ArrayList<>(names);
+    }
+
+    //임시 테이블 문법이 DB 마다 달라서 지금은 H2 만 지원하고 나머지는 청크 in 절로 조회한다
+    private static boolean supportsTempTable(EntityManager em) {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        return sessionFactory.getJdbcServices().getDialect() instanceof H2Dialect;
+    }
+
+    //로컬 임시 테이블은 커넥션(세션) 마다 따로 보이기 때문에 동시에 호출해도 서로 섞이지 않는다.
+    //TRANSACTIONAL 이 없으면 H2 는 create table 을 하면서 진행중인 트랜잭션을 커밋해 버린다.
+    @SuppressWarnings("unchecked")
+    private static List<Member> joinTempTable(EntityManager em, List<String> names) {
+        Session session = em.unwrap(Session.class);
+        session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create local temporary table if not exists " + TEMP_TABLE
+                        + " (username varchar(255) primary key) transactional");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into " + TEMP_TABLE + " (username) values (?)")) {
+                int count = 0;
+                for (String name : names) {
+                    insert.setString(1, name);
+                    insert.addBatch();
+                    if (++count % CHUNK_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        });
+        try {
+            //엔티티로 받는 네이티브 쿼리도 영속성 컨텍스트를 거치기 때문에 이미 있는 회원은 같은 인스턴스가 반환된다
+            return em.createNativeQuery(
+                    "select m.* from member m join " + TEMP_TABLE + " n on m.username = n.username", Member.class)
+                    .getResultList();
+        } finally {
+            session.doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("delete from " + TEMP_TABLE);
+                }
+            });
+        }
+    }
+}
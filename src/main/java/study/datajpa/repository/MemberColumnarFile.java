@@ -0,0 +1,247 @@
+package study.datajpa.repository;
+
+import study.datajpa.dto.MemberExportDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+//회원 내보내기용 컬럼 형식 파일
+//행을 ROW_GROUP_SIZE 개씩 묶어서 묶음 안에서는 컬럼별로 이어서 쓴다 (Parquet 의 row group 과 같은 방식)
+//
+//  "MCOL" 버전(1 byte)
+//  row group 반복 : 행 수(int) 본문 길이(int) 본문
+//    member_id : 앞 행과의 차이 (식별자 순으로 읽기 때문에 대부분 1 byte)
+//    age       : 값
+//    username  : 길이 + 1 (null 은 0) 과 UTF-8 바이트
+//    team_name : 묶음 안의 팀 이름 사전(개수, 길이 + UTF-8) 과 행마다 사전 번호 + 1 (null 은 0)
+//  행 수 0 으로 끝
+//숫자는 모두 zigzag varint 로 쓴다. 행 수 / 본문 길이만 고정 4 byte (big endian)
+class MemberColumnarFile {
+
+    static final int ROW_GROUP_SIZE = 8192;
+    private static final byte[] MAGIC = {'M', 'C', 'O', 'L'};
+    private static final byte VERSION = 1;
+
+    private MemberColumnarFile() {
+    }
+
+    static class Writer implements MemberExportWriter {
+
+        private final FileChannel channel;
+        private final long[] ids = new long[ROW_GROUP_SIZE];
+        private final int[] ages = new int[ROW_GROUP_SIZE];
+        private final String[] usernames = new String[ROW_GROUP_SIZE];
+        private final String[] teamNames = new String[ROW_GROUP_SIZE];
+        private final Bytes body = new Bytes(ROW_GROUP_SIZE * 16);
+        private int rows;
+        private long bytesWritten;
+        private boolean closed;
+
+        Writer(FileChannel channel) throws IOException {
+            this.channel = channel;
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+            header.put(MAGIC).put(VERSION).flip();
+            writeFully(header);
+        }
+
+        @Override
+        public void write(MemberExportDto row) throws IOException {
+            ids[rows] = row.getId();
+            ages[rows] = row.getAge();
+            usernames[rows] = row.getUsername();
+            teamNames[rows] = row.getTeamName();
+            if (++rows == ROW_GROUP_SIZE) {
+                writeRowGroup();
+            }
+        }
+
+        @Override
+        public long bytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (rows > 0) {
+                writeRowGroup();
+            }
+            ByteBuffer end = ByteBuffer.allocate(4);
+            end.putInt(0).flip();
+            writeFully(end);
+        }
+
+        private void writeRowGroup() throws IOException {
+            body.clear();
+            long previousId = 0;
+            for (int i = 0; i < rows; i++) {
+                body.putVarLong(ids[i] - previousId);
+                previousId = ids[i];
+            }
+            for (int i = 0; i < rows; i++) {
+                body.putVarLong(ages[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                body.putString(usernames[i]);
+            }
+
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> entries = new ArrayList<>();
+            int[] codes = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                if (teamNames[i] == null) {
+                    continue;
+                }
+                Integer code = dictionary.get(teamNames[i]);
+                if (code == null) {
+                    code = entries.size() + 1;
+                    dictionary.put(teamNames[i], code);
+                    entries.add(teamNames[i]);
+                }
+                codes[i] = code;
+            }
+            body.putVarLong(entries.size());
+            for (String entry : entries) {
+                body.putString(entry);
+            }
+            for (int i = 0; i < rows; i++) {
+                body.putVarLong(codes[i]);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(rows).putInt(body.size).flip();
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(body.bytes, 0, body.size));
+
+            Arrays.fill(usernames, 0, rows, null);
+            Arrays.fill(teamNames, 0, rows, null);
+            rows = 0;
+        }
+
+        private void writeFully(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                bytesWritten += channel.write(source);
+            }
+        }
+    }
+
+    //파일 전체를 메모리 매핑해서 읽는다 - 파일 크기가 2GB 를 넘으면 안된다
+    static List<MemberExportDto> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.get() != VERSION) {
+                throw new IOException("not a member columnar file: " + file);
+            }
+
+            List<MemberExportDto> result = new ArrayList<>();
+            int rows;
+            while ((rows = buffer.getInt()) > 0) {
+                buffer.getInt();
+                long[] ids = new long[rows];
+                long previousId = 0;
+                for (int i = 0; i < rows; i++) {
+                    previousId += getVarLong(buffer);
+                    ids[i] = previousId;
+                }
+                int[] ages = new int[rows];
+                for (int i = 0; i < rows; i++) {
+                    ages[i] = (int) getVarLong(buffer);
+                }
+                String[] usernames = new String[rows];
+                for (int i = 0; i < rows; i++) {
+                    usernames[i] = getString(buffer);
+                }
+                String[] dictionary = new String[(int) getVarLong(buffer)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = getString(buffer);
+                }
+                for (int i = 0; i < rows; i++) {
+                    int code = (int) getVarLong(buffer);
+                    result.add(new MemberExportDto(ids[i], usernames[i], ages[i], code == 0 ? null : dictionary[code - 1]));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        //zigzag
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = (int) getVarLong(buffer);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    //본문을 모으는 버퍼 - 모자라면 두배로 늘린다
+    private static class Bytes {
+        private byte[] bytes;
+        private int size;
+
+        private Bytes(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void putVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[size++] = (byte) zigzag;
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                putVarLong(0);
+                return;
+            }
+            byte[] encoded = value.getBytes(UTF_8);
+            putVarLong(encoded.length + 1);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package study.datajpa.repository;
+
+import study.datajpa.dto.MemberExportDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+//회원 CSV 를 한 행씩 읽는다 (MemberBulkLoader)
+//첫 줄 헤더로 컬럼 위치를 찾는다 - username, age 는 꼭 있어야 하고 member_id, team_name 은 없어도 된다
+//MemberCsvWriter 로 내보낸 파일을 그대로 읽을 수 있다. 빈 값은 null (age 는 0)
+class MemberCsvReader implements Iterator<MemberExportDto> {
+
+    private final BufferedReader reader;
+    private final int idColumn;
+    private final int usernameColumn;
+    private final int ageColumn;
+    private final int teamNameColumn;
+    private long record;
+    private List<String> next;
+
+    MemberCsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("member csv has no header");
+        }
+        this.idColumn = header.indexOf("member_id");
+        this.usernameColumn = header.indexOf("username");
+        this.ageColumn = header.indexOf("age");
+        this.teamNameColumn = header.indexOf("team_name");
+        if (usernameColumn < 0 || ageColumn < 0) {
+            throw new IllegalArgumentException("member csv header needs username and age columns: " + header);
+        }
+        this.next = readRecord();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public MemberExportDto next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = next;
+        long current = record;
+        next = readRecord();
+        try {
+            String id = field(fields, idColumn);
+            String age = field(fields, ageColumn);
+            return new MemberExportDto(
+                    id == null ? null : Long.valueOf(id),
+                    field(fields, usernameColumn),
+                    age == null ? 0 : Integer.parseInt(age),
+                    field(fields, teamNameColumn));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number in member csv record " + current + ": " + fields, e);
+        }
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column);
+        return value.isEmpty() ? null : value;
+    }
+
+    //RFC 4180 - 큰따옴표로 감싼 값은 쉼표와 줄바꿈을 포함할 수 있고 "" 는 " 하나다. 빈 줄은 건너뛴다
+    private List<String> readRecord() {
+        try {
+            int c = reader.read();
+            while (c == '\n' || c == '\r') {
+                c = reader.read();
+            }
+            if (c < 0) {
+                return null;
+            }
+            record++;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        throw new IllegalArgumentException("unterminated quote in member csv record " + record);
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c < 0) {
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
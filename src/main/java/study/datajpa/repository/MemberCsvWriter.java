@@ -0,0 +1,83 @@
+package study.datajpa.repository;
+
+import study.datajpa.dto.MemberExportDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+//CSV 한 파일 - 행을 다이렉트 버퍼에 모았다가 가득 차면 FileChannel 로 한번에 쓴다
+//쉼표, 큰따옴표, 줄바꿈이 들어간 값은 큰따옴표로 감싼다 (RFC 4180) - null 은 빈 값
+class MemberCsvWriter implements MemberExportWriter {
+
+    static final String HEADER = "member_id,username,age,team_name\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(128);
+    private long bytesWritten;
+
+    MemberCsvWriter(FileChannel channel) throws IOException {
+        this.channel = channel;
+        put(HEADER.getBytes(UTF_8));
+    }
+
+    @Override
+    public void write(MemberExportDto row) throws IOException {
+        line.setLength(0);
+        line.append(row.getId()).append(',');
+        appendField(row.getUsername());
+        line.append(',').append(row.getAge()).append(',');
+        appendField(row.getTeamName());
+        line.append('\n');
+        put(line.toString().getBytes(UTF_8));
+    }
+
+    @Override
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void appendField(String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            flush();
+        }
+        //버퍼보다 큰 행은 바로 쓴다
+        if (bytes.length > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes));
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            bytesWritten += channel.write(source);
+        }
+    }
+}
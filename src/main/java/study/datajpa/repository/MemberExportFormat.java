@@ -0,0 +1,35 @@
+package study.datajpa.repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+//내보내기 파일 형식
+//  CSV : member_id,username,age,team_name 헤더가 있는 UTF-8 텍스트
+//  COLUMNAR : 행 묶음(row group) 마다 컬럼별로 모아서 압축한 바이너리 (MemberColumnarFile)
+public enum MemberExportFormat {
+
+    CSV("csv") {
+        @Override
+        MemberExportWriter open(FileChannel channel) throws IOException {
+            return new MemberCsvWriter(channel);
+        }
+    },
+    COLUMNAR("mcol") {
+        @Override
+        MemberExportWriter open(FileChannel channel) throws IOException {
+            return new MemberColumnarFile.Writer(channel);
+        }
+    };
+
+    private final String extension;
+
+    MemberExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    abstract MemberExportWriter open(FileChannel channel) throws IOException;
+}
@@ -0,0 +1,32 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//내보내기 결과 - 파티션 순서대로의 파일 목록과 전체 행 수 / 바이트 수 / 걸린 시간
+@Getter
+@ToString
+public class MemberExportResult {
+
+    private final MemberExportFormat format;
+    private final List<Path> files;
+    private final long rows;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    MemberExportResult(MemberExportFormat format, List<Path> files, long rows, long bytes, long elapsedNanos) {
+        this.format = format;
+        this.files = files;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
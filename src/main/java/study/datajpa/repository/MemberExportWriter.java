@@ -0,0 +1,17 @@
+package study.datajpa.repository;
+
+import study.datajpa.dto.MemberExportDto;
+
+import java.io.IOException;
+
+//파티션 하나의 출력 파일 - 작업 스레드 하나만 쓴다
+interface MemberExportWriter extends AutoCloseable {
+
+    void write(MemberExportDto row) throws IOException;
+
+    //지금까지 파일에 쓴 바이트 수 (close 뒤에 전체 크기)
+    long bytesWritten();
+
+    @Override
+    void close() throws IOException;
+}
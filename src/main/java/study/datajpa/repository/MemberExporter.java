@@ -0,0 +1,157 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberExportDto;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+//회원 + 팀 전체를 파일로 내보낸다
+//[최소 식별자, 최대 식별자] 를 partitions 개 범위로 나누고 범위마다 작업 스레드에서
+//읽기 전용 트랜잭션을 열어 DTO 로 스트림 조회하면서 파티션 파일(members-00000.csv ...)에 바로 쓴다.
+//엔티티를 만들지 않고 한 행씩 흘려보내기 때문에 회원 수가 많아도 메모리는 파티션 수 만큼의 버퍼만 쓴다.
+//동시에 실행되는 파티션은 datajpa.export.workers 개 까지다 (커넥션 풀 크기보다 크게 잡지 않는다)
+//각 파티션이 따로 트랜잭션을 열기 때문에 호출한 쪽 트랜잭션에서 커밋 전에 바꾼 내용은 보이지 않는다.
+//실패하면 이미 쓴 파티션 파일은 그대로 남는다.
+@Slf4j
+@Component
+public class MemberExporter {
+
+    private static final String PARTITION_QUERY =
+            "select new study.datajpa.dto.MemberExportDto(m.id, m.username, m.age, t.name)" +
+                    " from Member m left join m.team t" +
+                    " where m.id between :start and :end order by m.id";
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor workers;
+    private final int fetchSize;
+
+    public MemberExporter(EntityManager em,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${datajpa.export.workers:4}") int workerCount,
+                          @Value("${datajpa.export.fetch-size:1000}") int fetchSize) {
+        this.em = em;
+        this.fetchSize = fetchSize;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "member-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public MemberExportResult export(Path directory, MemberExportFormat format, int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<long[]> ranges = readOnlyTransaction.execute(status -> ranges(partitions));
+        List<CompletableFuture<long[]>> results = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            Path file = directory.resolve(String.format("members-%05d.%s", i, format.getExtension()));
+            files.add(file);
+            results.add(CompletableFuture.supplyAsync(
+                    () -> readOnlyTransaction.execute(status -> exportPartition(range, file, format)), workers));
+        }
+
+        long rows = 0;
+        long bytes = 0;
+        try {
+            for (CompletableFuture<long[]> result : results) {
+                long[] written = result.join();
+                rows += written[0];
+                bytes += written[1];
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        MemberExportResult result = new MemberExportResult(format, files, rows, bytes, System.nanoTime() - started);
+        log.debug("member export {}", result);
+        return result;
+    }
+
+    //식별자 범위를 partitions 개로 나눈다 (회원이 없으면 빈 목록)
+    private List<long[]> ranges(int partitions) {
+        Object[] minMax = (Object[]) em.createQuery("select min(m.id), max(m.id) from Member m").getSingleResult();
+        List<long[]> ranges = new ArrayList<>();
+        if (minMax[0] == null) {
+            return ranges;
+        }
+        long min = ((Number) minMax[0]).longValue();
+        long max = ((Number) minMax[1]).longValue();
+        long width = Math.max(1, (max - min + partitions) / partitions);
+        for (long start = min; start <= max; start += width) {
+            ranges.add(new long[]{start, Math.min(max, start + width - 1)});
+        }
+        return ranges;
+    }
+
+    //{행 수, 바이트 수}
+    private long[] exportPartition(long[] range, Path file, MemberExportFormat format) {
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+             MemberExportWriter writer = format.open(channel);
+             Stream<MemberExportDto> stream = em.createQuery(PARTITION_QUERY, MemberExportDto.class)
+                     .setParameter("start", range[0])
+                     .setParameter("end", range[1])
+                     .setHint(QueryStreams.HINT_FETCH_SIZE, fetchSize)
+                     .getResultStream()) {
+            for (MemberExportDto row : (Iterable<MemberExportDto>) stream::iterator) {
+                writer.write(row);
+                rows++;
+            }
+            writer.close();
+            log.debug("member export partition [{}, {}] wrote {} rows to {}", range[0], range[1], rows, file);
+            return new long[]{rows, writer.bytesWritten()};
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
+
+//회원 조회 범위 - Member 의 @NamedEntityGraph 와 힌트 종류
+//  FETCH : 그래프에 없는 연관관계는 모두 지연로딩
+//  LOAD  : 그래프에 있는 연관관계는 즉시, 나머지는 매핑 설정대로
+public enum MemberFetchProfile {
+
+    //목록 화면 - 회원 컬럼만 읽고 팀은 읽지 않는다
+    SUMMARY("Member.summary", EntityGraphType.FETCH),
+    //회원 + 팀을 조인 한번으로 (findMemberFetchJoin 과 같은 SQL)
+    WITH_TEAM("Member.withTeam", EntityGraphType.LOAD);
+
+    private final String graphName;
+    private final EntityGraphType graphType;
+
+    MemberFetchProfile(String graphName, EntityGraphType graphType) {
+        this.graphName = graphName;
+        this.graphType = graphType;
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+
+    public EntityGraphType getGraphType() {
+        return graphType;
+    }
+}
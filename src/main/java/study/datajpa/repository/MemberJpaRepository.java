@@ -1,28 +1,57 @@
 package study.datajpa.repository;
 
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberDataChangedEvent;
+import study.datajpa.repository.support.BulkMutationExecutor;
+import study.datajpa.repository.support.OptimisticLockRetryExecutor;
+import study.datajpa.repository.support.PageCountCache;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+//조회는 읽기 전용 트랜잭션 - 변경감지 스냅샷을 만들지 않고 레플리카가 있으면 레플리카에서 읽는다
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
     @PersistenceContext
     private EntityManager em;
+    @Autowired
+    private PageCountCache pageCountCache;
+    @Autowired
+    private BulkMutationExecutor bulkMutationExecutor;
+    @Autowired
+    private OptimisticLockRetryExecutor optimisticLockRetryExecutor;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     //저장
+    @Transactional
     public Member save(Member member){
         em.persist(member);
         return member;
     }
 
+    //대량 저장 (MemberBatchWrites)
+    @Transactional
+    public int saveAllBatched(Iterable<Member> members, int chunkSize){
+        return MemberBatchWrites.saveAllBatched(em, members, chunkSize);
+    }
+
 
     //삭제 메서드
+    @Transactional
     public void delete(Member member){
          em.remove(member);
     }
@@ -40,6 +69,17 @@ public class MemberJpaRepository {
         return  em.createQuery("select m from Member m",Member.class)
                 .getResultList();
     }
+    //전체 조회 - List 에 다 올리지 않고 fetchSize 만큼씩 읽어서 흘려보낸다
+    //fetchSize 건마다 영속성 컨텍스트를 비우기 때문에 메모리가 일정하게 유지된다.
+    //트랜잭션 안에서 쓰고 다 쓰면 close 해야 한다
+    public Stream<Member> streamAll(int fetchSize){
+        return QueryStreams.streamAllMembers(em, fetchSize);
+    }
+
+    public Stream<MemberDto> streamMemberDto(int fetchSize){
+        return QueryStreams.streamMemberDto(em, fetchSize);
+    }
+
     //카운트
     public long Count(){
         return  em.createQuery("select count(m) from Member m" , Long.class)
@@ -59,6 +99,13 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    //username 목록으로 조회 - 목록이 커도 in 절 제한에 걸리지 않는다 (MemberBulkLookup)
+    //목록이 크면 임시 테이블에 쓰기 때문에 읽기 전용이 아닌 트랜잭션 (프라이머리) 에서 실행한다
+    @Transactional
+    public List<Member> findByUsernames(Collection<String> usernames){
+        return MemberBulkLookup.findByUsernames(em, usernames);
+    }
+
     public List<Member> findByPage(int age ,int offset , int limit){
        return  em.createQuery("select m from Member m where m.age = :age order by m.username desc")
                 .setParameter("age",age)
@@ -67,16 +114,37 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    //키셋 페이징 - offset 대신 이전 페이지 마지막 행의 토큰을 넘긴다. 첫 페이지는 null
+    public KeysetSlice<Member> findByPageKeyset(int age, String continuationToken, int limit){
+        return MemberKeysetQuery.findByAge(em, age, continuationToken, limit);
+    }
+
     public long totalCount(int age){
-        return  em.createQuery("select count(m) from Member m where age = :age",Long.class)
-                .setParameter("age" , age)
-                .getSingleResult();
+        return MemberPageCounts.countByAge(em, age);
+    }
+
+    //페이지를 넘길때마다 count 쿼리가 나가지 않도록 캐시된 카운트를 쓴다
+    //ttl(datajpa.paging.count-ttl-millis) 동안은 실제 건수와 다를 수 있다.
+    public long totalCountCached(int age){
+        return MemberPageCounts.cachedCountByAge(em, pageCountCache, age);
+    }
+
+    //회원의 팀을 바꾼다 - 팀의 members 컬렉션은 읽지 않고 @Version 충돌이 나면 새 트랜잭션에서 다시 시도한다
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Member reassignTeam(Long memberId, Long teamId){
+        return optimisticLockRetryExecutor.execute(() -> MemberMutations.reassignTeam(em, memberId, teamId));
     }
 
     //여러개를 업데이트 시켜야 할 경우를 JPA에선 벌크성 수정 쿼리라 한다.
+    //테이블이 크면 update 한번이 락을 오래 잡기 때문에 식별자 범위로 나눠서 실행한다 (BulkMutationExecutor)
+    //진행중인 트랜잭션이 없으면 BulkMutationExecutor 가 청크마다 트랜잭션을 연다
+    @Transactional(propagation = Propagation.SUPPORTS)
     public int bulkAgePlus(int age){
-        return  em.createQuery("update Member m set m.age = m.age +1 where m.age>= :age")
-                .setParameter("age", age)
-                .executeUpdate();
+        int updated = bulkMutationExecutor.execute(MemberMutations.agePlus(age));
+        //나이별 건수가 바뀌었기 때문에 캐시된 카운트를 버린다
+        pageCountCache.evictAll();
+        //벌크 수정은 엔티티 리스너를 거치지 않기 때문에 직접 알린다
+        eventPublisher.publishEvent(new MemberDataChangedEvent(Member.class, null));
+        return updated;
     }
 }
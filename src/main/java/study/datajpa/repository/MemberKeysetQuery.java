@@ -0,0 +1,59 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+//findByPage / findByAge 와 같은 (username desc, id) 순서의 키셋 페이징 쿼리
+//offset 페이징은 앞 페이지의 행을 모두 읽고 버리기 때문에 뒤로 갈수록 느려지지만
+//키셋 페이징은 마지막으로 읽은 행 다음부터 인덱스를 타고 바로 읽기 때문에 페이지 깊이와 상관없이 일정하다.
+//username 이 null 인 회원은 정렬 위치를 정할 수 없어 대상에서 제외한다.
+class MemberKeysetQuery {
+
+    static final Sort SORT = Sort.by(Sort.Direction.DESC, "username").and(Sort.by(Sort.Direction.ASC, "id"));
+
+    private static final String FIRST_PAGE =
+            "select m from Member m where m.age = :age and m.username is not null" +
+            " order by m.username desc, m.id asc";
+
+    //username <= :username 을 따로 두어야 (age, username) 인덱스 범위 검색을 탄다
+    private static final String NEXT_PAGE =
+            "select m from Member m where m.age = :age and m.username <= :username" +
+            " and (m.username < :username or m.id > :id)" +
+            " order by m.username desc, m.id asc";
+
+    private MemberKeysetQuery() {
+    }
+
+    static KeysetSlice<Member> findByAge(EntityManager em, int age, String continuationToken, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        KeysetCursor cursor = KeysetCursor.decode(continuationToken);
+
+        TypedQuery<Member> query;
+        if (cursor == null) {
+            query = em.createQuery(FIRST_PAGE, Member.class);
+        } else {
+            query = em.createQuery(NEXT_PAGE, Member.class)
+                    .setParameter("username", cursor.getUsername())
+                    .setParameter("id", cursor.getId());
+        }
+        //다음 페이지가 있는지 확인하기 위해 하나 더 가져온다
+        List<Member> members = query
+                .setParameter("age", age)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        String nextToken = null;
+        if (members.size() > size) {
+            members = members.subList(0, size);
+            nextToken = KeysetCursor.of(members.get(size - 1)).encode();
+        }
+        return new KeysetSlice<>(members, PageRequest.of(0, size, SORT), nextToken, cursor == null);
+    }
+}
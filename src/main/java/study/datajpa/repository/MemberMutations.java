@@ -0,0 +1,33 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.support.BulkMutation;
+
+import javax.persistence.EntityManager;
+
+//MemberRepository / MemberJpaRepository 가 같이 쓰는 수정 작업 정의
+class MemberMutations {
+
+    private MemberMutations() {
+    }
+
+    //벌크 수정은 @Version 을 올려주지 않기 때문에 직접 올린다
+    //그래야 벌크 수정 전에 읽은 회원을 수정하면 충돌로 감지된다.
+    static BulkMutation<Member> agePlus(int age) {
+        return BulkMutation.of(Member.class, "m", "m.age = m.age + 1, m.version = m.version + 1")
+                .where("m.age >= :age")
+                .parameter("age", age)
+                .affects(member -> member.getAge() >= age);
+    }
+
+    //팀은 getReference 로 프록시만 만들어서 팀도, 팀의 members 도 조회하지 않는다
+    static Member reassignTeam(EntityManager em, Long memberId, Long teamId) {
+        Member member = em.find(Member.class, memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("member not found: " + memberId);
+        }
+        member.changeTeam(em.getReference(Team.class, teamId));
+        return member;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.repository;
+
+import study.datajpa.repository.support.PageCountCache;
+
+import javax.persistence.EntityManager;
+
+//age 조건 페이징의 카운트 쿼리 - MemberRepositoryImpl 과 MemberJpaRepository 가 같은 캐시 키를 쓴다 (PageCountCache)
+class MemberPageCounts {
+
+    private static final String COUNT_BY_AGE = "select count(m) from Member m where m.age = :age";
+
+    private MemberPageCounts() {
+    }
+
+    static long countByAge(EntityManager em, int age) {
+        return em.createQuery(COUNT_BY_AGE, Long.class)
+                .setParameter("age", age)
+                .getSingleResult();
+    }
+
+    static long cachedCountByAge(EntityManager em, PageCountCache pageCountCache, int age) {
+        return pageCountCache.get("Member.findByAge:" + age, () -> countByAge(em, age));
+    }
+}
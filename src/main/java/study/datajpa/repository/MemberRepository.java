@@ -3,9 +3,12 @@ package study.datajpa.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberSearchCondition;
 import study.datajpa.entity.Member;
 
 import javax.persistence.QueryHint;
@@ -14,9 +17,18 @@ import java.util.Optional;
 
 //스프링 데이터 JPA 리파지토리 생성방법
 //인터페이스로 생성해 JpaRepository<엔티티 타입 , 맵핑 PK 데이터 타입>를 상속받는다
-public interface MemberRepository extends JpaRepository<Member, Long> {
+//조회 메서드는 읽기 전용 트랜잭션으로 실행한다.
+//하이버네이트가 변경감지용 스냅샷을 만들지 않고 FlushMode.MANUAL 로 flush 도 하지 않으며
+//레플리카가 설정되어 있으면 레플리카 DB 에서 읽는다 (ReplicationDataSourceConfig)
+//save, delete 같은 CRUD 메서드는 SimpleJpaRepository 의 트랜잭션 설정을 그대로 쓴다.
+//MemberRepositoryCustom 메서드에는 이 설정이 적용되지 않아서 MemberRepositoryImpl 에 따로 붙인다.
+@Transactional(readOnly = true)
+public interface MemberRepository extends JpaRepository<Member, Long>, JpaSpecificationExecutor<Member>, MemberRepositoryCustom {
     List<Member> findByUsernameAndAgeGreaterThan(String username, int age);
 
+    //목록 조회는 DTO 로 바꾸면서 팀 이름을 읽기 때문에 팀을 같이 가져온다
+    //Member.team 은 NO_PROXY 라서 getTeam() 만 해도 회원마다 select 가 나간다 (Member 참고)
+    @EntityGraph(attributePaths = {"team"})
     @Query(name = "Member.findByUsername")
     List<Member> findByUsername(@Param("username") String username);
 
@@ -28,10 +40,14 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     List<String> findUsernameList();
 
     //DTO 조회
+    //쿼리 캐시에 올려서 Member, Team 테이블이 바뀌기 전까지는 DB 에 다시 묻지 않는다
+    //메모리 캐시까지 쓰려면 findMemberDtoCached
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select new study.datajpa.dto.MemberDto(m.id , m.username, t.name) from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
     //컬랙션 파라미터 바인딩
+    //목록이 크면 in 절 제한에 걸리기 때문에 findByUsernames 를 쓴다
     @Query("select m from Member m where m.username in :names")
     List<Member> findByNames(@Param("names") List<String> names);
 
@@ -48,8 +64,12 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     //핵심 비지니스에 집중할 수 있다.
     //소팅같은 경우에도 복잡한 상황에서는 pageRequest에서 해결이 안되기 떄문에
     //@Query에 작성하는 JPQL에 작성해 주는 것이 좋다
-    @Query(value = "select m from Member m left join m.team t")
-    Page<Member> findByAge(int age , Pageable pageable);
+    //left join 은 건수에 영향이 없으니 카운트 쿼리는 조인 없이 Member 만 센다
+    //팀은 @EntityGraph 로 같이 가져온다 (findByUsername 참고)
+    @EntityGraph(attributePaths = {"team"})
+    @Query(value = "select m from Member m left join m.team t where m.age = :age",
+            countQuery = "select count(m) from Member m where m.age = :age")
+    Page<Member> findByAge(@Param("age") int age , Pageable pageable);
     //Slice<Member> findByAge(int age , Pageable pageable);
     
     //spring data jpa 에서 벌크성 수정쿼리
@@ -58,9 +78,8 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     //영속성 컨텍스트를 한번 리셋 시켜 줘야한다.
     //spring - data - jpa 에서는 modifying에 clearAutomatically =true 옵션으로
     //flush() / clear()를 대신할 수 있다
-    @Modifying(clearAutomatically = true)
-    @Query("update Member m set m.age = m.age +1 where m.age>=:age")
-    int bulkAgePlus(@Param("age") int age);
+    //-> 테이블이 커지면서 bulkAgePlus 는 MemberRepositoryImpl 로 옮겨서 BulkMutationExecutor 로 실행한다.
+    //식별자 범위로 나눠서 실행하고 clear 대신 수정된 엔티티만 영속성 컨텍스트에서 내보낸다.
 
     //순수 JPA에서  페치조인을 통한 연관데이터 불러오기
     @Query("select m from Member m left join fetch m.team")
@@ -73,6 +92,7 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     //따로 페치조인 jpql 작성필요없이(내부적으로 페치조인 쿼리가 자동 생성됨)
     //연관관계인 데이터를 불러올 수 있다.
     //간단할떄는 EntityGraph를 사용하고 쿼리가 복잡해진다면 JPQL에 fetch 조인을 사용하는 것이 좋다.
+    //-> 조회 범위를 호출하는 쪽에서 고르려면 findAll(MemberFetchProfile) 처럼 프로필을 받는 메서드를 쓴다 (MemberRepositoryCustom)
     @Override
     @EntityGraph(attributePaths = {"team"})
     List<Member> findAll();
@@ -87,4 +107,28 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
 
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
+
+    //프로젝션 - 엔티티 대신 필요한 필드만 조회한다.
+    //영속성 컨텍스트에 올라가지 않기 때문에 변경감지용 스냅샷도 만들어지지 않는다.
+    List<UsernameOnly> findProjectionsByUsername(String username);
+
+    //동적 프로젝션 - 반환 타입(인터페이스, DTO 클래스, 엔티티)을 호출할 때 정한다
+    //findByUsername 은 이미 NamedQuery 와 연결되어 있어서 이름을 따로 준다.
+    <T> List<T> findProjectionsByUsername(String username, Class<T> type);
+
+    <T> List<T> findProjectionsByUsernameAndAgeGreaterThan(String username, int age, Class<T> type);
+
+    @Query("select m.id as id, m.username as username, t.name as teamName from Member m left join m.team t")
+    List<MemberSummary> findMemberSummary();
+
+    //search 결과도 DTO 로 바꾸면서 팀 이름을 읽기 때문에 팀을 같이 가져온다 (카운트 쿼리에는 붙지 않는다)
+    @Override
+    @EntityGraph(attributePaths = {"team"})
+    Page<Member> findAll(Specification<Member> spec, Pageable pageable);
+
+    //동적 검색 - 조건 조합마다 메서드를 만들지 않고 Specification 으로 조립한다 (MemberSpecs)
+    //정렬은 pageable 의 sort 로 넘긴다
+    default Page<Member> search(MemberSearchCondition condition, Pageable pageable) {
+        return findAll(MemberSpecs.search(condition), pageable);
+    }
 }
@@ -0,0 +1,63 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+//스프링 데이터 JPA 인터페이스만으로 해결이 안되는 기능은
+//사용자 정의 인터페이스를 만들고 구현 클래스(이름 + Impl)에 직접 구현한다.
+public interface MemberRepositoryCustom {
+
+    //조회 범위(MemberFetchProfile)를 호출할 때 고른다 - 엔티티 그래프 힌트로 적용된다 (FetchProfiles)
+    //프로필 별 row / byte 수는 /stats/sql 의 "메서드[프로필]" 항목으로 본다
+    List<Member> findAll(MemberFetchProfile profile);
+
+    Page<Member> findAll(MemberFetchProfile profile, Pageable pageable);
+
+    List<Member> findByUsername(String username, MemberFetchProfile profile);
+
+    Optional<Member> findById(Long id, MemberFetchProfile profile);
+
+    //대량 저장
+    int saveAllBatched(Iterable<Member> members, int chunkSize);
+
+    //키셋 페이징 - 첫 페이지는 continuationToken 을 null 로 넘긴다
+    KeysetSlice<Member> findByAgeKeyset(int age, String continuationToken, int size);
+
+    //카운트 쿼리를 캐시해서 페이지 요청마다 쿼리 한번만 나가는 페이징
+    Page<Member> findByAgeCachedCount(int age, Pageable pageable);
+
+    //findMemberDto 결과를 메모리에 캐시해서 돌려준다 (DtoQueryCache) - 돌려받은 목록과 DTO 는 수정하면 안된다
+    List<MemberDto> findMemberDtoCached();
+
+    //전체 조회를 List 대신 Stream 으로 - 트랜잭션 안에서 쓰고 다 쓰면 close 해야 한다
+    Stream<Member> streamAll(int fetchSize);
+
+    Stream<MemberDto> streamMemberDto(int fetchSize);
+
+    //username 목록으로 조회 - 목록이 커도 in 절 제한에 걸리지 않는다 (MemberBulkLookup)
+    List<Member> findByUsernames(Collection<String> usernames);
+
+    //팀별 회원 수 / 나이별 회원 수 - DB 에서 group by 한다 (MemberAggregates)
+    //매번 쿼리가 나가기 때문에 자주 읽는 곳은 MemberAggregateSnapshot 을 쓴다
+    TeamMemberCounts countMembersPerTeam();
+
+    //index = 나이, 값 = 회원 수 - 마지막 칸(MemberAggregateSnapshot.MAX_AGE)은 그 이상 나이를 모두 포함한다
+    long[] countMembersByAge();
+
+    //나이를 bucketWidth 단위 구간으로 나눈 회원 수 - 마지막 구간은 그 이상 나이를 모두 포함한다
+    //마지막 구간은 MAX_AGE 보다 먼저 시작해야 한다 (bucketWidth * (bucketCount - 1) <= MAX_AGE)
+    long[] ageHistogram(int bucketWidth, int bucketCount);
+
+    //회원의 팀을 바꾼다 - 팀의 members 컬렉션은 읽지 않고 @Version 충돌이 나면 다시 시도한다
+    Member reassignTeam(Long memberId, Long teamId);
+
+    //벌크성 수정 쿼리 - age 이상인 회원의 나이를 1 올린다
+    int bulkAgePlus(int age);
+}
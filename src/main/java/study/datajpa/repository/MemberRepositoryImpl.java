@@ -0,0 +1,173 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberDataChangedEvent;
+import study.datajpa.repository.support.BulkMutation;
+import study.datajpa.repository.support.BulkMutationExecutor;
+import study.datajpa.repository.support.DtoQueryCache;
+import study.datajpa.repository.support.OptimisticLockRetryExecutor;
+import study.datajpa.repository.support.PageCountCache;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+//MemberRepository 에 붙인 @Transactional(readOnly = true) 는 인터페이스에 선언된 메서드에만 적용되고
+//이 클래스로 넘어오는 사용자 정의 메서드에는 적용되지 않는다. 조회 메서드가 읽기 전용 트랜잭션 (레플리카) 에서 실행되도록 여기에도 붙이고
+//쓰기 메서드는 메서드마다 따로 설정한다.
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MemberRepositoryImpl implements MemberRepositoryCustom {
+
+    private final EntityManager em;
+    private final PageCountCache pageCountCache;
+    private final BulkMutationExecutor bulkMutationExecutor;
+    private final OptimisticLockRetryExecutor optimisticLockRetryExecutor;
+    private final DtoQueryCache dtoQueryCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public List<Member> findAll(MemberFetchProfile profile) {
+        return FetchProfiles.track(profile, () -> withProfile(
+                em.createQuery("select m from Member m", Member.class), profile)
+                .getResultList());
+    }
+
+    //회원 쪽 그래프는 to-one 만 있어서 row 수가 늘지 않기 때문에 DB 에서 페이징한다
+    @Override
+    public Page<Member> findAll(MemberFetchProfile profile, Pageable pageable) {
+        return FetchProfiles.track(profile, () -> {
+            String jpql = QueryUtils.applySorting("select m from Member m", pageable.getSort(), "m");
+            TypedQuery<Member> query = withProfile(em.createQuery(jpql, Member.class), profile);
+            if (pageable.isPaged()) {
+                query.setFirstResult((int) pageable.getOffset());
+                query.setMaxResults(pageable.getPageSize());
+            }
+            return PageableExecutionUtils.getPage(query.getResultList(), pageable,
+                    () -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+        });
+    }
+
+    @Override
+    public List<Member> findByUsername(String username, MemberFetchProfile profile) {
+        return FetchProfiles.track(profile, () -> withProfile(
+                em.createQuery("select m from Member m where m.username = :username", Member.class), profile)
+                .setParameter("username", username)
+                .getResultList());
+    }
+
+    //2차 캐시에 있으면 SQL 없이 돌려준다
+    @Override
+    public Optional<Member> findById(Long id, MemberFetchProfile profile) {
+        return FetchProfiles.track(profile, () -> Optional.ofNullable(
+                em.find(Member.class, id, FetchProfiles.findHints(em, profile.getGraphName(), profile.getGraphType()))));
+    }
+
+    private TypedQuery<Member> withProfile(TypedQuery<Member> query, MemberFetchProfile profile) {
+        return FetchProfiles.apply(em, query, profile.getGraphName(), profile.getGraphType());
+    }
+
+    @Override
+    @Transactional
+    public int saveAllBatched(Iterable<Member> members, int chunkSize) {
+        return MemberBatchWrites.saveAllBatched(em, members, chunkSize);
+    }
+
+    @Override
+    public KeysetSlice<Member> findByAgeKeyset(int age, String continuationToken, int size) {
+        return MemberKeysetQuery.findByAge(em, age, continuationToken, size);
+    }
+
+    //PageableExecutionUtils 는 첫 페이지가 pageSize 보다 적게 조회되거나 마지막 페이지면 카운트 쿼리를 생략하고
+    //카운트가 필요할 때도 PageCountCache 에 저장된 값이 있으면 그 값을 쓴다.
+    @Override
+    public Page<Member> findByAgeCachedCount(int age, Pageable pageable) {
+        String jpql = QueryUtils.applySorting("select m from Member m where m.age = :age", pageable.getSort(), "m");
+        TypedQuery<Member> query = em.createQuery(jpql, Member.class)
+                .setParameter("age", age);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Member> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> MemberPageCounts.cachedCountByAge(em, pageCountCache, age));
+    }
+
+    //forward-only 커서로 fetchSize 만큼씩 읽고 fetchSize 건마다 이 스트림이 읽은 엔티티만 준영속으로 만든다 (QueryStreams)
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        return QueryStreams.streamAllMembers(em, fetchSize);
+    }
+
+    @Override
+    public List<MemberDto> findMemberDtoCached() {
+        return dtoQueryCache.get("Member.findMemberDto", () -> Collections.unmodifiableList(
+                em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t",
+                        MemberDto.class)
+                        .setHint(QueryHints.HINT_CACHEABLE, true)
+                        .getResultList()));
+    }
+
+    @Override
+    public Stream<MemberDto> streamMemberDto(int fetchSize) {
+        return QueryStreams.streamMemberDto(em, fetchSize);
+    }
+
+    //목록이 크면 임시 테이블에 쓰기 때문에 읽기 전용이 아닌 트랜잭션 (프라이머리) 에서 실행한다 (MemberBulkLookup)
+    @Override
+    @Transactional
+    public List<Member> findByUsernames(Collection<String> usernames) {
+        return MemberBulkLookup.findByUsernames(em, usernames);
+    }
+
+    @Override
+    public TeamMemberCounts countMembersPerTeam() {
+        return MemberAggregates.countMembersPerTeam(em);
+    }
+
+    @Override
+    public long[] countMembersByAge() {
+        return MemberAggregates.countMembersByAge(em);
+    }
+
+    @Override
+    public long[] ageHistogram(int bucketWidth, int bucketCount) {
+        return MemberAggregates.histogram(em, bucketWidth, bucketCount);
+    }
+
+    //시도마다 새 트랜잭션을 열기 때문에 클래스의 읽기 전용 트랜잭션을 받지 않는다 (SUPPORTS)
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Member reassignTeam(Long memberId, Long teamId) {
+        return optimisticLockRetryExecutor.execute(() -> MemberMutations.reassignTeam(em, memberId, teamId));
+    }
+
+    //진행중인 트랜잭션이 없으면 BulkMutationExecutor 가 청크마다 트랜잭션을 연다
+    //(클래스의 읽기 전용 설정을 받지 않도록 SUPPORTS)
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int bulkAgePlus(int age) {
+        int updated = bulkMutationExecutor.execute(MemberMutations.agePlus(age));
+        //나이별 건수가 바뀌었기 때문에 캐시된 카운트를 버린다
+        pageCountCache.evictAll();
+        //벌크 수정은 엔티티 리스너를 거치지 않기 때문에 직접 알린다
+        eventPublisher.publishEvent(new MemberDataChangedEvent(Member.class, null));
+        return updated;
+    }
+}
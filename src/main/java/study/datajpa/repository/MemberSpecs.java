@@ -0,0 +1,55 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+
+//회원 검색 조건 (Specification)
+//값은 항상 파라미터로 바인딩되기 때문에 (hibernate.criteria.literal_handling_mode=bind)
+//같은 조건 조합이면 값이 달라도 같은 JPQL 이 만들어지고 하이버네이트 쿼리 플랜 캐시를 다시 쓴다.
+public class MemberSpecs {
+
+    private MemberSpecs() {
+    }
+
+    //조건이 하나도 없으면 전체 조회
+    public static Specification<Member> search(MemberSearchCondition condition) {
+        Specification<Member> spec = Specification.where(null);
+        if (condition.getUsername() != null) {
+            spec = spec.and(usernameEq(condition.getUsername()));
+        }
+        if (condition.getAgeGoe() != null) {
+            spec = spec.and(ageGoe(condition.getAgeGoe()));
+        }
+        if (condition.getAgeLoe() != null) {
+            spec = spec.and(ageLoe(condition.getAgeLoe()));
+        }
+        if (condition.getTeamName() != null) {
+            spec = spec.and(teamNameEq(condition.getTeamName()));
+        }
+        return spec;
+    }
+
+    public static Specification<Member> usernameEq(String username) {
+        return (root, query, builder) -> builder.equal(root.get("username"), username);
+    }
+
+    public static Specification<Member> ageGoe(int age) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("age"), age);
+    }
+
+    public static Specification<Member> ageLoe(int age) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("age"), age);
+    }
+
+    public static Specification<Member> teamNameEq(String teamName) {
+        return (root, query, builder) -> {
+            Join<Member, Team> team = root.join("team", JoinType.INNER);
+            return builder.equal(team.get("name"), teamName);
+        };
+    }
+}
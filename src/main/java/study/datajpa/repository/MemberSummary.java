@@ -0,0 +1,12 @@
+package study.datajpa.repository;
+
+//@Query 의 select 절 alias 와 getter 이름을 맞춘 인터페이스 프로젝션
+//조인한 팀 이름까지 엔티티 없이 바로 꺼낼 수 있다.
+public interface MemberSummary {
+
+    Long getId();
+
+    String getUsername();
+
+    String getTeamName();
+}
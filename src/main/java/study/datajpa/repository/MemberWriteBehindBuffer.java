@@ -0,0 +1,172 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Member;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.stream.Collectors.toList;
+
+//새 회원을 바로 저장하지 않고 큐에 넣어두고 백그라운드 스레드가 모아서 저장한다 (write-behind)
+//datajpa.write-behind.enabled=true 일 때만 등록된다.
+//
+//큐에 batch-size 개가 모이거나 flush-interval-millis 가 지나면 saveAllBatched 로 한 트랜잭션에 저장한다.
+//enqueue 가 돌려준 CompletableFuture 는 커밋이 끝나야 완료되고, 저장이 실패하면 그 배치 전체가 예외로 완료된다.
+//큐가 가득 차면 offer-timeout-millis 동안 자리가 나기를 기다리고 그래도 없으면 RejectedExecutionException 을 던진다.
+//종료할 때는 남은 회원을 모두 저장하고 끝낸다.
+//큐에 넣은 회원은 다른 스레드의 영속성 컨텍스트에서 저장되기 때문에 future 가 완료되기 전에 수정하면 안된다.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "datajpa.write-behind", name = "enabled", havingValue = "true")
+public class MemberWriteBehindBuffer {
+
+    private final MemberRepository memberRepository;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    //큐에 들어갔거나 들어가려고 자리를 잡은 회원 수 (ConcurrentLinkedQueue.size() 는 전체를 세기 때문에 따로 센다)
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean running;
+    private Thread committer;
+
+    public MemberWriteBehindBuffer(MemberRepository memberRepository,
+                                   @Value("${datajpa.write-behind.capacity:10000}") int capacity,
+                                   @Value("${datajpa.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${datajpa.write-behind.flush-interval-millis:200}") long flushIntervalMillis,
+                                   @Value("${datajpa.write-behind.offer-timeout-millis:1000}") long offerTimeoutMillis) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive: " + capacity + ", " + batchSize);
+        }
+        //큐가 배치 크기보다 작으면 크기로는 저장되지 않고 매번 flush-interval 까지 기다리게 된다
+        if (capacity < batchSize) {
+            throw new IllegalArgumentException("capacity must not be smaller than batchSize: " + capacity + " < " + batchSize);
+        }
+        this.memberRepository = memberRepository;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        committer = new Thread(this::commitLoop, "member-write-behind");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    //future 는 회원이 커밋된 뒤에 완료된다
+    public CompletableFuture<Member> enqueue(Member member) {
+        if (!running) {
+            throw new IllegalStateException("write-behind buffer is shut down");
+        }
+        reserve();
+        Pending pending = new Pending(member);
+        queue.offer(pending);
+        //넣는 사이에 종료됐으면 저장되지 않을 수 있기 때문에 실패로 알려준다 (잡아둔 자리도 돌려준다)
+        if (!running && queue.remove(pending)) {
+            size.decrementAndGet();
+            pending.future.completeExceptionally(new IllegalStateException("write-behind buffer is shut down"));
+            return pending.future;
+        }
+        if (size.get() >= batchSize) {
+            LockSupport.unpark(committer);
+        }
+        return pending.future;
+    }
+
+    public int pendingCount() {
+        return size.get();
+    }
+
+    //큐에 자리가 날 때까지 offerTimeout 동안 기다린다 (backpressure)
+    private void reserve() {
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        while (true) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return;
+                }
+                continue;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new RejectedExecutionException("write-behind queue is full (capacity " + capacity + ")");
+            }
+            //가득 찼으면 기다리지 말고 바로 저장하도록 깨운다
+            LockSupport.unpark(committer);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private void commitLoop() {
+        long lastFlush = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            long waited = System.nanoTime() - lastFlush;
+            if (running && size.get() < batchSize && waited < flushIntervalNanos) {
+                LockSupport.parkNanos(this, flushIntervalNanos - waited);
+                continue;
+            }
+            flushBatch();
+            lastFlush = System.nanoTime();
+        }
+    }
+
+    private void flushBatch() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        Pending pending;
+        while (batch.size() < batchSize && (pending = queue.poll()) != null) {
+            batch.add(pending);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        size.addAndGet(-batch.size());
+        //Error 까지 잡아서 배치의 future 를 실패로 끝낸다 - 저장 스레드가 죽으면 이후의 future 가 영원히 완료되지 않는다
+        try {
+            memberRepository.saveAllBatched(batch.stream().map(p -> p.member).collect(toList()), batchSize);
+            batch.forEach(p -> p.future.complete(p.member));
+        } catch (Throwable e) {
+            log.error("write-behind batch of {} members failed", batch.size(), e);
+            batch.forEach(p -> p.future.completeExceptionally(e));
+        }
+    }
+
+    //남은 회원을 모두 저장하고 끝낸다
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(committer);
+        committer.join(TimeUnit.SECONDS.toMillis(30));
+        //제 시간에 저장하지 못한 회원은 실패로 알려준다
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException("write-behind buffer shut down before saving"));
+        }
+    }
+
+    private static class Pending {
+        private final Member member;
+        private final CompletableFuture<Member> future = new CompletableFuture<>();
+
+        private Pending(Member member) {
+            this.member = member;
+        }
+    }
+}
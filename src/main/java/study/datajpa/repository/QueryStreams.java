@@ -0,0 +1,99 @@
+package study.datajpa.repository;
+
+import org.hibernate.CacheMode;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//대량 조회 결과를 Stream 으로 흘려보낼 때 쓰는 도구
+class QueryStreams {
+
+    //fetch size 만큼씩 DB 에서 가져오도록 하는 하이버네이트 힌트
+    static final String HINT_FETCH_SIZE = "org.hibernate.fetchSize";
+    static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+    //전체를 훑는 조회가 2차 캐시를 채우면서 자주 쓰는 엔티티를 밀어내지 않도록 캐시를 읽지도 쓰지도 않는다
+    static final String HINT_CACHE_MODE = "org.hibernate.cacheMode";
+
+    private QueryStreams() {
+    }
+
+    //Member 전체를 fetchSize 만큼씩 읽는다 - MemberRepository / MemberJpaRepository 가 같이 쓴다
+    //읽기 전용으로 조회해서 변경감지용 스냅샷을 만들지 않는다 (엔티티를 수정해도 반영되지 않는다)
+    static Stream<Member> streamAllMembers(EntityManager em, int fetchSize) {
+        Stream<Member> stream = em.createQuery("select m from Member m", Member.class)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .setHint(HINT_READ_ONLY, true)
+                .setHint(HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream();
+        return detachEvery(em, stream, fetchSize);
+    }
+
+    //DTO 는 영속성 컨텍스트에 올라가지 않기 때문에 비워줄 필요가 없다
+    static Stream<MemberDto> streamMemberDto(EntityManager em, int fetchSize) {
+        return em.createQuery(
+                "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t",
+                MemberDto.class)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .setHint(HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream();
+    }
+
+    //스트림으로 읽은 엔티티도 영속성 컨텍스트에 계속 쌓이기 때문에 batchSize 건마다 이 스트림이 돌려준 엔티티만 준영속으로 만든다.
+    //em 은 호출한 쪽과 같이 쓰는 영속성 컨텍스트라 em.clear() 를 하면 호출한 쪽이 읽은 엔티티와 flush 되지 않은 변경까지 버려진다.
+    //스트림을 열기 전부터 영속 상태였던 엔티티는 호출한 쪽의 것이라 건드리지 않는다.
+    //다음 배치로 넘어가기 직전에 내보내기 때문에 소비하고 있는 배치의 엔티티는 영속 상태로 남는다 (지연로딩 가능).
+    static <T> Stream<T> detachEvery(EntityManager em, Stream<T> stream, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        Set<Object> managedBefore = managedEntities(em);
+        Iterator<T> delegate = stream.iterator();
+        Iterator<T> detaching = new Iterator<T>() {
+            private final List<T> batch = new ArrayList<>(batchSize);
+
+            @Override
+            public boolean hasNext() {
+                if (batch.size() >= batchSize) {
+                    batch.forEach(em::detach);
+                    batch.clear();
+                }
+                return delegate.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T next = delegate.next();
+                if (!managedBefore.contains(next)) {
+                    batch.add(next);
+                }
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(detaching, Spliterator.ORDERED), false)
+                .onClose(stream::close);
+    }
+
+    //스트림을 열 때 영속성 컨텍스트에 있던 엔티티 (같은 인스턴스인지로 비교한다)
+    private static Set<Object> managedEntities(EntityManager em) {
+        Set<Object> managed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Object, EntityEntry> entry
+                : em.unwrap(SessionImplementor.class).getPersistenceContext().reentrantSafeEntityEntries()) {
+            managed.add(entry.getKey());
+        }
+        return managed;
+    }
+}
@@ -0,0 +1,28 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
+
+//팀 조회 범위 - Team 의 @NamedEntityGraph 와 힌트 종류 (MemberFetchProfile 참고)
+public enum TeamFetchProfile {
+
+    //팀 컬럼만
+    SUMMARY("Team.summary", EntityGraphType.FETCH),
+    //팀 + 멤버 컬렉션을 조인 한번으로 - 팀 수 x 멤버 수 만큼 row 가 나온다
+    WITH_MEMBERS("Team.withMembers", EntityGraphType.LOAD);
+
+    private final String graphName;
+    private final EntityGraphType graphType;
+
+    TeamFetchProfile(String graphName, EntityGraphType graphType) {
+        this.graphName = graphName;
+        this.graphType = graphType;
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+
+    public EntityGraphType getGraphType() {
+        return graphType;
+    }
+}
@@ -1,6 +1,7 @@
 package study.datajpa.repository;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
 
@@ -9,18 +10,22 @@ import javax.persistence.PersistenceContext;
 import java.util.List;
 import java.util.Optional;
 
+//조회는 읽기 전용 트랜잭션 - 변경감지 스냅샷을 만들지 않고 레플리카가 있으면 레플리카에서 읽는다
 @Repository
+@Transactional(readOnly = true)
 public class TeamJpaRepository {
 
     @PersistenceContext
     private EntityManager em;
     
     //저장
+    @Transactional
     public Team save(Team team){
         em.persist(team);
         return team;
     }
     //삭제
+    @Transactional
     public  void delete(Team team){
         em.remove(team);
     }
@@ -31,6 +36,29 @@ public class TeamJpaRepository {
                 .getResultList();
     }
 
+    //팀과 멤버를 한번에 조회 (컬렉션 페치조인)
+    public List<Team> findAllWithMembers(){
+        return em.createQuery("select distinct t from Team t left join fetch t.members", Team.class)
+                .setHint("hibernate.query.passDistinctThrough", false)
+                .getResultList();
+    }
+
+    //컬렉션 페치조인에 setFirstResult / setMaxResults 를 쓰면 하이버네이트가 전체를 메모리에 올려서 페이징하기 때문에
+    //팀만 먼저 페이징하고 그 팀들의 members 를 in 절 페치조인으로 채운다.
+    public List<Team> findPageWithMembers(int offset, int limit){
+        List<Team> teams = em.createQuery("select t from Team t order by t.id", Team.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+        if (!teams.isEmpty()) {
+            em.createQuery("select distinct t from Team t left join fetch t.members where t in :teams", Team.class)
+                    .setParameter("teams", teams)
+                    .setHint("hibernate.query.passDistinctThrough", false)
+                    .getResultList();
+        }
+        return teams;
+    }
+
     //아이디 단건 조회
     public Optional<Team> findById(Long id){
         Team team = em.find(Team.class, id);
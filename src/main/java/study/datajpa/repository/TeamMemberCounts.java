@@ -0,0 +1,99 @@
+package study.datajpa.repository;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//팀 식별자 -> 회원 수 (읽기 전용)
+//Map<Long, Long> 대신 long 배열 두개에 open addressing (linear probing) 으로 담아서
+//팀 수만큼 Long 객체와 Entry 를 만들지 않고 get 도 박싱 없이 O(1) 로 찾는다.
+public final class TeamMemberCounts {
+
+    private static final TeamMemberCounts EMPTY = new TeamMemberCounts(new long[0], new long[0]);
+
+    //식별자로 쓰이지 않는 값을 빈 칸 표시로 쓴다
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final long[] keys;
+    private final long[] values;
+    private final int size;
+    private final long total;
+
+    private TeamMemberCounts(long[] teamIds, long[] counts) {
+        int capacity = tableSize(teamIds.length);
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        Arrays.fill(keys, FREE);
+        long sum = 0;
+        for (int i = 0; i < teamIds.length; i++) {
+            int slot = slot(teamIds[i]);
+            keys[slot] = teamIds[i];
+            values[slot] = counts[i];
+            sum += counts[i];
+        }
+        this.size = teamIds.length;
+        this.total = sum;
+    }
+
+    //teamIds 는 중복이 없어야 한다 (group by 결과)
+    static TeamMemberCounts of(long[] teamIds, long[] counts) {
+        if (teamIds.length != counts.length) {
+            throw new IllegalArgumentException("teamIds and counts must have the same length");
+        }
+        return teamIds.length == 0 ? EMPTY : new TeamMemberCounts(teamIds, counts);
+    }
+
+    //회원이 없는 팀은 0
+    public long get(long teamId) {
+        if (size == 0) {
+            return 0;
+        }
+        int slot = slot(teamId);
+        return keys[slot] == teamId ? values[slot] : 0;
+    }
+
+    //회원이 한명 이상인 팀 수
+    public int size() {
+        return size;
+    }
+
+    //팀이 있는 회원 수
+    public long total() {
+        return total;
+    }
+
+    public Map<Long, Long> toMap() {
+        Map<Long, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                map.put(keys[i], values[i]);
+            }
+        }
+        return map;
+    }
+
+    //teamId 가 있는 칸이나 처음 만나는 빈 칸
+    private int slot(long teamId) {
+        int mask = keys.length - 1;
+        int slot = mix(teamId) & mask;
+        while (keys[slot] != FREE && keys[slot] != teamId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    //시퀀스 식별자는 연속된 값이라 그대로 쓰면 한쪽에 몰리기 때문에 비트를 섞는다
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    //채움률이 0.5 이하가 되는 2의 거듭제곱
+    private static int tableSize(int entries) {
+        int capacity = 2;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -1,8 +1,58 @@
 package study.datajpa.repository;
 
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Team;
 
-public interface TeamRepository extends JpaRepository<Team,Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//조회 메서드는 읽기 전용 트랜잭션 (MemberRepository 참고)
+@Transactional(readOnly = true)
+public interface TeamRepository extends JpaRepository<Team,Long>, TeamRepositoryCustom {
+
+    //팀과 멤버를 한번에 조회 (컬렉션 페치조인)
+    //컬렉션 페치조인은 팀 수 만큼 row 가 늘어나서 distinct 로 중복 팀을 걸러낸다
+    //passDistinctThrough = false 로 distinct 는 SQL 로 보내지 않고 메모리에서만 처리한다.
+    //컬렉션 페치조인에 페이징을 걸면 전체를 메모리에 올려서 페이징하기 때문에 페이징은 findPageWithMembers 를 쓴다
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    @Query("select distinct t from Team t left join fetch t.members")
+    List<Team> findAllWithMembers();
+
+    //이미 조회한 팀들의 members 를 쿼리 한번으로 초기화한다
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    @Query("select distinct t from Team t left join fetch t.members where t in :teams")
+    List<Team> fetchMembers(@Param("teams") Collection<Team> teams);
+
+    //팀은 DB 에서 페이징하고 해당 페이지 팀들의 members 만 따로 페치조인 한다 (쿼리 2번 + 카운트)
+    //같은 영속성 컨텍스트 안에서 실행되어야 페이지의 팀 엔티티에 members 가 채워진다.
+    default Page<Team> findPageWithMembers(Pageable pageable) {
+        Page<Team> page = findAll(pageable);
+        if (page.hasContent()) {
+            fetchMembers(page.getContent());
+        }
+        return page;
+    }
+
+    //팀 식별자와 이름만 조회 (엔티티를 만들지 않는다)
+    @Query("select t.id, t.name from Team t order by t.id")
+    List<Object[]> findAllIdAndName();
+
+    //팀 이름 -> 식별자 - 같은 이름이 여러개면 먼저 만든 팀
+    default Map<String, Long> findIdsByName() {
+        Map<String, Long> ids = new HashMap<>();
+        for (Object[] row : findAllIdAndName()) {
+            ids.putIfAbsent((String) row[1], (Long) row[0]);
+        }
+        return ids;
+    }
 }
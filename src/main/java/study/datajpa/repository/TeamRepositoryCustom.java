@@ -0,0 +1,14 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Team;
+
+import java.util.List;
+import java.util.Optional;
+
+//조회 범위(TeamFetchProfile)를 호출할 때 고르는 팀 조회 (MemberRepositoryCustom 참고)
+public interface TeamRepositoryCustom {
+
+    List<Team> findAll(TeamFetchProfile profile);
+
+    Optional<Team> findById(Long id, TeamFetchProfile profile);
+}
@@ -0,0 +1,34 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+
+//TeamRepository 의 @Transactional(readOnly = true) 는 사용자 정의 메서드에 적용되지 않는다 (MemberRepositoryImpl 참고)
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    private final EntityManager em;
+
+    //WITH_MEMBERS 는 컬렉션을 조인하기 때문에 팀이 멤버 수 만큼 중복되어 나온다
+    //distinct 는 메모리에서만 처리한다 (findAllWithMembers 참고)
+    @Override
+    public List<Team> findAll(TeamFetchProfile profile) {
+        return FetchProfiles.track(profile, () -> FetchProfiles.apply(em,
+                em.createQuery("select distinct t from Team t", Team.class),
+                profile.getGraphName(), profile.getGraphType())
+                .setHint("hibernate.query.passDistinctThrough", false)
+                .getResultList());
+    }
+
+    @Override
+    public Optional<Team> findById(Long id, TeamFetchProfile profile) {
+        return FetchProfiles.track(profile, () -> Optional.ofNullable(
+                em.find(Team.class, id, FetchProfiles.findHints(em, profile.getGraphName(), profile.getGraphType()))));
+    }
+}
@@ -0,0 +1,8 @@
+package study.datajpa.repository;
+
+//인터페이스 기반 Closed 프로젝션
+//getter 에 해당하는 필드(username)만 select 절에 들어가고 스프링 데이터 JPA 가 구현체(프록시)를 만들어준다.
+public interface UsernameOnly {
+
+    String getUsername();
+}
@@ -0,0 +1,17 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//클래스 기반 프로젝션 - 생성자의 파라미터 이름으로 조회할 필드를 정한다
+//프록시 없이 new 로 바로 만들어 진다.
+@Getter
+@ToString
+public class UsernameOnlyDto {
+
+    private final String username;
+
+    public UsernameOnlyDto(String username) {
+        this.username = username;
+    }
+}
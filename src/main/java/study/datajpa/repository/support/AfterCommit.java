@@ -0,0 +1,49 @@
+package study.datajpa.repository.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//트랜잭션 안이면 커밋된 뒤에 한번만, 밖이면 바로 실행한다 (롤백되면 실행하지 않는다)
+//한 트랜잭션에서 엔티티 이벤트가 여러번 와도 같은 key 로는 한번만 등록된다.
+//캐시를 커밋 전에 비우면 그 사이에 다른 스레드가 커밋 전 값을 다시 캐시에 넣을 수 있기 때문에 커밋 뒤에 비운다.
+//
+//이미 등록했는지는 현재 트랜잭션의 동기화 목록에서 찾는다.
+//스레드에 묶인 리소스(bindResource)로 표시하면 REQUIRES_NEW 로 연 안쪽 트랜잭션에서도 보여서
+//안쪽 트랜잭션이 커밋될 때 실행되지 않는다 - 동기화 목록은 바깥 트랜잭션이 보류되면 같이 보류된다.
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void runOnce(Object key, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof KeyedSynchronization
+                    && ((KeyedSynchronization) synchronization).key.equals(key)) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new KeyedSynchronization(key, action));
+    }
+
+    private static class KeyedSynchronization extends TransactionSynchronizationAdapter {
+        private final Object key;
+        private final Runnable action;
+
+        private KeyedSynchronization(Object key, Runnable action) {
+            this.key = key;
+            this.action = action;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package study.datajpa.repository.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+//BulkMutationExecutor 로 실행할 벌크 수정 쿼리 정의
+//set 절과 where 조건을 따로 받아서 실행할 때 "update 엔티티 alias set ... where (조건) and 식별자 범위" 로 조립한다.
+//조건을 괄호로 감싸기 때문에 or 가 들어가도 식별자 범위가 조건 전체에 걸린다.
+//ex) BulkMutation.of(Member.class, "m", "m.age = m.age + 1")
+//        .where("m.age >= :age")
+//        .parameter("age", 20)
+//        .affects(member -> member.getAge() >= 20)
+public class BulkMutation<T> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final Class<T> entityClass;
+    private final String alias;
+    private final String setClause;
+    private String predicate;
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private Predicate<? super T> affects = entity -> true;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private BulkMutation(Class<T> entityClass, String alias, String setClause) {
+        this.entityClass = entityClass;
+        this.alias = alias;
+        this.setClause = setClause;
+    }
+
+    //setClause 는 "set" 뒤에 오는 부분 (ex. "m.age = m.age + 1")
+    public static <T> BulkMutation<T> of(Class<T> entityClass, String alias, String setClause) {
+        return new BulkMutation<>(entityClass, alias, setClause);
+    }
+
+    //수정할 행 조건 - 지정하지 않으면 전체 행 (식별자 범위만 건다)
+    public BulkMutation<T> where(String predicate) {
+        this.predicate = predicate;
+        return this;
+    }
+
+    public BulkMutation<T> parameter(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    //수정 후 영속성 컨텍스트에서 내보낼 엔티티 조건 - 지정하지 않으면 해당 타입의 엔티티를 모두 내보낸다
+    public BulkMutation<T> affects(Predicate<? super T> affects) {
+        this.affects = affects;
+        return this;
+    }
+
+    //한 트랜잭션에서 수정할 식별자 범위의 크기
+    public BulkMutation<T> chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getSetClause() {
+        return setClause;
+    }
+
+    //조건이 없으면 null
+    public String getPredicate() {
+        return predicate;
+    }
+
+    public Map<String, Object> getParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    public boolean isAffected(T entity) {
+        return affects.test(entity);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,195 @@
+package study.datajpa.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//큰 테이블의 벌크 수정을 식별자 범위(청크)로 나눠서 실행한다.
+//update 한번으로 전체를 수정하면 문장이 끝날 때까지 락을 오래 잡고 있기 때문에
+//청크마다 별도 트랜잭션으로 나눠서 작업 스레드풀에서 병렬로 실행한다.
+//
+//이미 진행중인 트랜잭션 안에서 호출하면 다른 스레드가 그 트랜잭션을 같이 쓸 수 없기 때문에
+//청크를 현재 트랜잭션에서 순서대로 실행하고, 끝나면 영향받은 엔티티만 영속성 컨텍스트에서 내보낸다.
+//(clearAutomatically 처럼 영속성 컨텍스트 전체를 비우지 않는다)
+//병렬로 실행하다 실패하면 이미 커밋된 청크는 그대로 남는다.
+@Slf4j
+@Component
+public class BulkMutationExecutor {
+
+    private static final String RANGE_START = "bulkRangeStart";
+    private static final String RANGE_END = "bulkRangeEnd";
+
+    private final EntityManager em;
+    private final TransactionTemplate chunkTransaction;
+    private final ThreadPoolExecutor workers;
+
+    public BulkMutationExecutor(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${datajpa.bulk.workers:4}") int workerCount,
+                                @Value("${datajpa.bulk.queue-capacity:1000}") int queueCapacity) {
+        this.em = em;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        //큐가 가득 차면 호출한 스레드에서 직접 실행해서 제출 속도를 늦춘다
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bulk-mutation-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public <T> int execute(BulkMutation<T> mutation) {
+        return execute(mutation, BulkProgressListener.NONE);
+    }
+
+    public <T> int execute(BulkMutation<T> mutation, BulkProgressListener listener) {
+        List<long[]> ranges = ranges(mutation);
+        Progress progress = new Progress(ranges.size(), listener);
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            int updated = 0;
+            for (long[] range : ranges) {
+                int chunkUpdated = executeChunk(mutation, range);
+                updated += chunkUpdated;
+                progress.chunkCompleted(chunkUpdated);
+            }
+            evictAffected(mutation);
+            return updated;
+        }
+
+        List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+        for (long[] range : ranges) {
+            chunks.add(CompletableFuture.supplyAsync(() -> {
+                Integer chunkUpdated = chunkTransaction.execute(status -> executeChunk(mutation, range));
+                progress.chunkCompleted(chunkUpdated);
+                return chunkUpdated;
+            }, workers));
+        }
+        try {
+            return chunks.stream().mapToInt(CompletableFuture::join).sum();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    //[최소 식별자, 최대 식별자] 를 chunkSize 크기로 나눈 범위 목록
+    private <T> List<long[]> ranges(BulkMutation<T> mutation) {
+        Object[] minMax = (Object[]) em.createQuery(
+                "select min(e." + idName(mutation) + "), max(e." + idName(mutation) + ") from " + entityName(mutation) + " e")
+                .getSingleResult();
+        List<long[]> ranges = new ArrayList<>();
+        if (minMax[0] == null) {
+            return ranges;
+        }
+        long min = ((Number) minMax[0]).longValue();
+        long max = ((Number) minMax[1]).longValue();
+        for (long start = min; start <= max; start += mutation.getChunkSize()) {
+            long end = Math.min(max, start + mutation.getChunkSize() - 1);
+            ranges.add(new long[]{start, end});
+        }
+        return ranges;
+    }
+
+    private <T> int executeChunk(BulkMutation<T> mutation, long[] range) {
+        String jpql = jpql(mutation);
+
+        javax.persistence.Query query = em.createQuery(jpql)
+                .setParameter(RANGE_START, range[0])
+                .setParameter(RANGE_END, range[1]);
+        for (Map.Entry<String, Object> parameter : mutation.getParameters().entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        int updated = query.executeUpdate();
+        log.debug("bulk mutation chunk [{}, {}] updated {} rows", range[0], range[1], updated);
+        return updated;
+    }
+
+    //update 엔티티 alias set ... where (조건) and alias.식별자 between :start and :end
+    private <T> String jpql(BulkMutation<T> mutation) {
+        String alias = mutation.getAlias();
+        StringBuilder jpql = new StringBuilder("update ").append(entityName(mutation)).append(' ').append(alias)
+                .append(" set ").append(mutation.getSetClause())
+                .append(" where ");
+        if (mutation.getPredicate() != null) {
+            jpql.append('(').append(mutation.getPredicate()).append(") and ");
+        }
+        return jpql.append(alias).append('.').append(idName(mutation))
+                .append(" between :").append(RANGE_START).append(" and :").append(RANGE_END)
+                .toString();
+    }
+
+    //벌크 수정은 영속성 컨텍스트를 거치지 않기 때문에 이미 올라와 있는 엔티티는 옛날 값을 가지고 있다.
+    //영향받은 엔티티만 내보내서 다음 조회때 DB 에서 다시 읽게 한다.
+    private <T> void evictAffected(BulkMutation<T> mutation) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        List<Object> managed = new ArrayList<>(session.getPersistenceContext().getEntitiesByKey().values());
+        for (Object entity : managed) {
+            if (mutation.getEntityClass().isInstance(entity)
+                    && mutation.isAffected(mutation.getEntityClass().cast(entity))) {
+                em.detach(entity);
+            }
+        }
+    }
+
+    private <T> String entityName(BulkMutation<T> mutation) {
+        return em.getMetamodel().entity(mutation.getEntityClass()).getName();
+    }
+
+    private <T> String idName(BulkMutation<T> mutation) {
+        EntityType<T> entityType = em.getMetamodel().entity(mutation.getEntityClass());
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private static class Progress {
+        private final int totalChunks;
+        private final BulkProgressListener listener;
+        private int completedChunks;
+        private long updatedRows;
+
+        private Progress(int totalChunks, BulkProgressListener listener) {
+            this.totalChunks = totalChunks;
+            this.listener = listener;
+        }
+
+        //진행 상황이 뒤바뀌어 보고되지 않도록 한번에 하나씩 보고한다
+        private synchronized void chunkCompleted(int updated) {
+            completedChunks++;
+            updatedRows += updated;
+            listener.onProgress(new BulkProgress(completedChunks, totalChunks, updatedRows));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//벌크 수정 진행 상황
+@Getter
+@ToString
+public class BulkProgress {
+
+    private final int completedChunks;
+    private final int totalChunks;
+    private final long updatedRows;
+
+    public BulkProgress(int completedChunks, int totalChunks, long updatedRows) {
+        this.completedChunks = completedChunks;
+        this.totalChunks = totalChunks;
+        this.updatedRows = updatedRows;
+    }
+
+    public boolean isDone() {
+        return completedChunks == totalChunks;
+    }
+}
@@ -0,0 +1,11 @@
+package study.datajpa.repository.support;
+
+//청크 하나가 끝날 때마다 호출된다
+//병렬로 실행될 때는 여러 작업 스레드에서 동시에 호출될 수 있다.
+@FunctionalInterface
+public interface BulkProgressListener {
+
+    BulkProgressListener NONE = progress -> { };
+
+    void onProgress(BulkProgress progress);
+}
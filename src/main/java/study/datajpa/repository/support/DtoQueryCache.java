@@ -0,0 +1,102 @@
+package study.datajpa.repository.support;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.MemberDataChangedEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//DTO 조회 결과를 애플리케이션 메모리에 저장해 두는 캐시 (1단계 - 2단계는 하이버네이트 쿼리 캐시)
+//Caffeine(W-TinyLFU)으로 maximum-size 개 까지만 저장한다.
+//refresh-after-millis 가 지난 값을 읽으면 저장된 값을 바로 돌려주고 백그라운드에서 한번만 다시 조회한다 (stale-while-revalidate)
+//같은 키를 여러 스레드가 동시에 처음 읽어도 조회는 한번만 나간다.
+//Member, Team 이 바뀌면 (MemberDataChangedEvent) 커밋된 뒤에 전체를 비운다.
+//조회는 항상 별도의 읽기 전용 트랜잭션에서 해서 커밋된 데이터만 저장한다.
+//저장된 DTO 는 여러 호출이 같이 쓰기 때문에 꺼낸 쪽에서 수정하면 안된다.
+@Slf4j
+@Component
+public class DtoQueryCache {
+
+    private final Map<String, Supplier<?>> loaders = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final LoadingCache<String, Object> cache;
+
+    public DtoQueryCache(PlatformTransactionManager transactionManager,
+                         @Value("${datajpa.dto-cache.maximum-size:1000}") long maximumSize,
+                         @Value("${datajpa.dto-cache.refresh-after-millis:5000}") long refreshAfterMillis,
+                         @Value("${datajpa.dto-cache.expire-after-millis:60000}") long expireAfterMillis) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        //호출한 쪽의 쓰기 트랜잭션에 참여하면 커밋 안된 행을 읽어 공유 캐시에 넣게 된다 (롤백되면 무효화도 안된다)
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dto-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //refresh 가 계속 실패해도 expire 가 지나면 오래된 값을 버린다
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(refreshAfterMillis, TimeUnit.MILLISECONDS)
+                .expireAfterWrite(expireAfterMillis, TimeUnit.MILLISECONDS)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(this::load);
+    }
+
+    //key 마다 조회 방법(loader)은 처음 넘긴 것을 계속 쓴다
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        loaders.putIfAbsent(key, loader);
+        return (T) cache.get(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hitCount", cache.stats().hitCount());
+        stats.put("missCount", cache.stats().missCount());
+        stats.put("loadCount", cache.stats().loadCount());
+        stats.put("evictionCount", cache.stats().evictionCount());
+        stats.put("size", cache.estimatedSize());
+        return stats;
+    }
+
+    //트랜잭션 안에서 바뀌었으면 커밋된 뒤에 한번만 비운다 (AfterCommit)
+    @EventListener
+    public void onDataChanged(MemberDataChangedEvent event) {
+        AfterCommit.runOnce(this, this::invalidateAll);
+    }
+
+    private Object load(String key) {
+        Supplier<?> loader = loaders.get(key);
+        if (loader == null) {
+            throw new IllegalStateException("no loader for " + key);
+        }
+        log.debug("loading dto query {}", key);
+        return readOnlyTransaction.execute(status -> loader.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package study.datajpa.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//웹 요청 스레드(톰캣) 대신 JPA 호출을 실행하는 전용 실행기
+//자바 21 이상이면 가상 스레드를 쓰고, 동시에 실행되는 JPA 호출 수는 세마포어로 max-concurrency 까지로 막는다.
+//그보다 낮은 버전이면 max-concurrency 개 까지 늘어났다가 놀면 줄어드는 스레드풀을 쓰고
+//대기 큐(queue-capacity)까지 가득 차면 RejectedExecutionException 으로 바로 거절한다 (503).
+//JPA 호출은 결국 커넥션을 하나씩 잡기 때문에 max-concurrency 는 커넥션 풀 크기에 맞춘다.
+@Slf4j
+@Component
+public class JpaExecutor {
+
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public JpaExecutor(PlatformTransactionManager transactionManager,
+                       @Value("${datajpa.web.jpa-executor.max-concurrency:10}") int maxConcurrency,
+                       @Value("${datajpa.web.jpa-executor.queue-capacity:1000}") int queueCapacity) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        if (virtualThreads != null) {
+            log.info("jpa executor uses virtual threads (max concurrency {})", maxConcurrency);
+            this.executorService = virtualThreads;
+            this.permits = new Semaphore(maxConcurrency);
+        } else {
+            log.info("jpa executor uses a bounded thread pool (max {} threads, queue {})", maxConcurrency, queueCapacity);
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "jpa-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            this.executorService = pool;
+            this.permits = null;
+        }
+    }
+
+    //자바 21 의 Executors.newVirtualThreadPerTaskExecutor() 가 있으면 사용한다
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual thread executor is not available", e);
+            return null;
+        }
+    }
+
+    public void execute(Runnable task) {
+        if (permits == null) {
+            executorService.execute(task);
+            return;
+        }
+        //가상 스레드는 블로킹이 싸기 때문에 실행 스레드에서 허가를 기다린다
+        executorService.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    //읽기 전용 트랜잭션 안에서 query 를 실행한다
+    //지연 로딩이 필요한 엔티티 -> DTO 변환도 query 안에서 끝내야 한다.
+    public <T> CompletableFuture<T> readOnly(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> inReadOnlyTransaction(query), this::execute);
+    }
+
+    //이미 JpaExecutor 스레드에서 실행 중일 때 (스트리밍 응답 등) 트랜잭션만 연다
+    public <T> T inReadOnlyTransaction(Supplier<T> query) {
+        return readOnlyTransaction.execute(status -> query.get());
+    }
+
+    public boolean isVirtualThreads() {
+        return permits != null;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executorService.shutdown();
+        if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+            executorService.shutdownNow();
+        }
+    }
+}
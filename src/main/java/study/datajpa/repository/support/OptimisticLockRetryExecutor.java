@@ -0,0 +1,78 @@
+package study.datajpa.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//@Version 충돌(또는 락 대기 실패)이 나면 작업을 새 트랜잭션에서 처음부터 다시 실행한다
+//다시 실행할 때 엔티티를 DB 에서 새로 읽어야 하기 때문에 작업 안에서 조회부터 해야 한다.
+//시도마다 REQUIRES_NEW 로 트랜잭션을 새로 열기 때문에 바깥 트랜잭션 안에서 불러도 바깥과는 따로 커밋된다.
+//여러 스레드가 같은 간격으로 다시 부딪히지 않도록 대기 시간을 지수적으로 늘리고 무작위 값을 더한다.
+@Slf4j
+@Component
+public class OptimisticLockRetryExecutor {
+
+    private final TransactionTemplate attemptTransaction;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final AtomicLong retries = new AtomicLong();
+
+    public OptimisticLockRetryExecutor(PlatformTransactionManager transactionManager,
+                                       @Value("${datajpa.optimistic-lock.max-attempts:5}") int maxAttempts,
+                                       @Value("${datajpa.optimistic-lock.backoff-millis:10}") long backoffMillis) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.attemptTransaction = new TransactionTemplate(transactionManager);
+        this.attemptTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attemptTransaction.execute(status -> work.get());
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                log.debug("optimistic lock conflict, retrying ({}/{}): {}", attempt, maxAttempts, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void run(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    //지금까지 충돌로 다시 실행한 횟수
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    private void backoff(int attempt) {
+        long delay = backoffMillis * (1L << Math.min(attempt - 1, 10));
+        long jitter = ThreadLocalRandom.current().nextLong(backoffMillis + 1);
+        try {
+            Thread.sleep(delay + jitter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting to retry", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package study.datajpa.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+//페이징 카운트 쿼리 결과를 조건(key) 별로 잠깐 저장해 두는 캐시
+//페이지를 넘길때마다 같은 조건의 count 쿼리가 다시 나가지 않도록 ttl 동안은 저장된 값을 쓴다.
+//ttl 동안은 실제 건수와 조금 다를 수 있기 때문에 정확한 건수가 필요한 곳에는 쓰지 않는다.
+//조건 값마다 키가 생기기 때문에 Caffeine 으로 max-size 개 까지만 저장하고 ttl 이 지난 값은 지운다.
+@Component
+public class PageCountCache {
+
+    private final Cache<String, Long> counts;
+
+    public PageCountCache(@Value("${datajpa.paging.count-ttl-millis:30000}") long ttlMillis,
+                          @Value("${datajpa.paging.count-max-size:10000}") long maximumSize) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    //같은 key 를 여러 스레드가 동시에 처음 읽어도 count 쿼리는 한번만 나간다
+    public long get(String key, LongSupplier countQuery) {
+        return counts.get(key, k -> countQuery.getAsLong());
+    }
+
+    public void evict(String key) {
+        counts.invalidate(key);
+    }
+
+    //벌크 수정처럼 건수가 크게 바뀌는 작업 후에 호출한다
+    public void evictAll() {
+        counts.invalidateAll();
+    }
+}
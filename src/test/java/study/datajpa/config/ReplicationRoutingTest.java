@@ -0,0 +1,121 @@
+package study.datajpa.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberFetchProfile;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+//프라이머리, 레플리카를 서로 다른 메모리 DB 로 띄워서 트랜잭션 종류에 따라 어느 DB 로 가는지 확인한다
+//ddl-auto 는 프라이머리에만 테이블을 만들기 때문에 레플리카에는 프라이머리의 스키마를 복사해 둔다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replica.username=sa"
+})
+class ReplicationRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired MemberRepository memberRepository;
+    @PersistenceContext
+    EntityManager em;
+
+    @BeforeEach
+    public void copySchemaToReplica() throws SQLException {
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "")) {
+            if (memberTableCount(replica) > 0) {
+                return;
+            }
+            TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+            @SuppressWarnings("unchecked")
+            List<String> script = readWrite.execute(status -> em.createNativeQuery("script nodata").getResultList());
+            try (Statement statement = replica.createStatement()) {
+                for (String sql : script) {
+                    //계정은 이미 있고 주석 줄은 실행할 것이 없다
+                    if (sql.startsWith("--") || sql.startsWith("CREATE USER")) {
+                        continue;
+                    }
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica(){
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        String readOnlyDatabase = readOnly.execute(status -> currentDatabase());
+        String readWriteDatabase = readWrite.execute(status -> currentDatabase());
+
+        assertThat(readOnlyDatabase).isEqualTo("REPLICA");
+        assertThat(readWriteDatabase).isEqualTo("PRIMARY");
+    }
+
+    @Test
+    public void writesGoToPrimary(){
+        //save 는 SimpleJpaRepository 의 읽기/쓰기 트랜잭션에서 실행되기 때문에 프라이머리에 저장된다
+        Member saved = memberRepository.save(new Member("replicaMember", 19));
+
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        Member found = readWrite.execute(status -> em.find(Member.class, saved.getId()));
+        assertThat(found).isNotNull();
+        assertThat(found.getUsername()).isEqualTo("replicaMember");
+    }
+
+    @Test
+    public void repositoryFindersGoToReplica() throws SQLException {
+        //given
+        //레플리카에만 있는 회원 - 프라이머리에서 읽으면 찾지 못한다
+        String username = "replicaOnly" + System.nanoTime();
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             PreparedStatement insert = replica.prepareStatement(
+                     "insert into member (member_id, username, age, version) values (?, ?, ?, 0)")) {
+            insert.setLong(1, System.nanoTime());
+            insert.setString(2, username);
+            insert.setInt(3, 19);
+            insert.executeUpdate();
+        }
+
+        //when
+        //인터페이스에 선언된 쿼리 메서드와 MemberRepositoryImpl 의 사용자 정의 메서드
+        List<Member> byQueryMethod = memberRepository.findByUsername(username);
+        List<Member> byFragment = memberRepository.findByUsername(username, MemberFetchProfile.SUMMARY);
+
+        //then
+        assertThat(byQueryMethod).extracting(Member::getUsername).containsExactly(username);
+        assertThat(byFragment).extracting(Member::getUsername).containsExactly(username);
+    }
+
+    private static long memberTableCount(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "select count(*) from information_schema.tables where table_name = 'MEMBER'")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private String currentDatabase() {
+        return (String) em.createNativeQuery("select database()").getSingleResult();
+    }
+}
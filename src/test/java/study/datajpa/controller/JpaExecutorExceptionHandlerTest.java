@@ -0,0 +1,51 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import study.datajpa.repository.support.JpaExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//JpaExecutor 가 거절하면 503 으로 응답하는지 확인한다
+//가상 스레드에서는 큐가 없어서 실제로는 거절이 일어나지 않기 때문에 JpaExecutor 를 목으로 바꾼다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:executor-rejected;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class JpaExecutorExceptionHandlerTest {
+    @Autowired MockMvc mvc;
+    @MockBean JpaExecutor jpaExecutor;
+
+    //스레드풀 큐가 가득 차면 작업을 넘길 때 바로 던진다 (CompletableFuture.supplyAsync)
+    @Test
+    public void rejectedOnSubmit() throws Exception {
+        given(jpaExecutor.readOnly(any())).willThrow(new RejectedExecutionException("queue is full"));
+
+        mvc.perform(get("/members/{id}", 1L))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    //write-behind 큐처럼 거절이 future 로 전달되는 경우 - 비동기 디스패치에서 처리된다
+    @Test
+    public void rejectedFuture() throws Exception {
+        CompletableFuture<Object> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new RejectedExecutionException("queue is full"));
+        given(jpaExecutor.readOnly(any())).willReturn(rejected);
+
+        MvcResult started = mvc.perform(get("/teams/{id}", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,91 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//컨트롤러는 CompletableFuture / StreamingResponseBody 를 반환하기 때문에
+//첫 요청은 비동기로 시작만 되고 asyncDispatch 로 다시 보내야 응답이 만들어진다.
+//JpaExecutor 스레드에서 조회하기 때문에 테스트 트랜잭션 없이 커밋된 데이터로 확인한다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:member-controller;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class MemberControllerTest {
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void streamAllAsNdjson() throws Exception {
+        //given
+        transactionTemplate.execute(status -> {
+            Team team = teamRepository.save(new Team("streamTeam"));
+            for (int i = 0; i < 3; i++) {
+                memberRepository.save(new Member("streamMember" + i, 5, team));
+            }
+            return null;
+        });
+
+        //when
+        MvcResult started = mvc.perform(get("/members/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MemberController.APPLICATION_NDJSON))
+                .andReturn();
+
+        //then
+        //한 줄에 회원 하나씩
+        List<JsonNode> members = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            members.add(objectMapper.readTree(line));
+        }
+        assertThat(members).extracting(member -> member.get("username").asText())
+                .contains("streamMember0", "streamMember1", "streamMember2");
+        assertThat(members).filteredOn(member -> member.get("username").asText().startsWith("streamMember"))
+                .extracting(member -> member.get("teamName").asText())
+                .containsOnly("streamTeam");
+    }
+
+    @Test
+    public void findMember() throws Exception {
+        Member member = memberRepository.save(new Member("controllerMember", 6));
+
+        MvcResult started = mvc.perform(get("/members/{id}", member.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("controllerMember"));
+    }
+
+    @Test
+    public void findMemberNotFound() throws Exception {
+        MvcResult started = mvc.perform(get("/members/{id}", Long.MAX_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,56 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//비동기 응답은 asyncDispatch 로 다시 보내서 확인한다 (MemberControllerTest 참고)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:team-controller;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class TeamControllerTest {
+    @Autowired MockMvc mvc;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void findTeamWithMembers() throws Exception {
+        Team team = transactionTemplate.execute(status -> {
+            Team saved = teamRepository.save(new Team("controllerTeam"));
+            memberRepository.save(new Member("controllerTeamMember1", 7, saved));
+            memberRepository.save(new Member("controllerTeamMember2", 7, saved));
+            return saved;
+        });
+
+        MvcResult started = mvc.perform(get("/teams/{id}", team.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("controllerTeam"))
+                .andExpect(jsonPath("$.memberNames", containsInAnyOrder("controllerTeamMember1", "controllerTeamMember2")));
+    }
+
+    @Test
+    public void findTeamNotFound() throws Exception {
+        MvcResult started = mvc.perform(get("/teams/{id}", Long.MAX_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isNotFound());
+    }
+}
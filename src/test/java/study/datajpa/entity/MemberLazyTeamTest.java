@@ -0,0 +1,96 @@
+package study.datajpa.entity;
+
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.support.QueryCounter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+//Member.team 은 @LazyToOne(NO_PROXY) 라서 getTeam() 을 부르는 순간 select 가 나간다
+//목록을 DTO 로 바꾸는 조회 (MemberController 의 목록 API) 가 회원마다 팀을 읽지 않는지 확인한다.
+//2차 캐시에서 팀을 꺼내면 select 가 보이지 않기 때문에 캐시를 끈다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lazy-team;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=1"
+})
+@Transactional
+class MemberLazyTeamTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired QueryCounter queryCounter;
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void getTeamSelectsWithoutProxy(){
+        //-PnoEnhance 로 빌드하면 프록시가 반환되어 select 가 나가지 않는다
+        assumeTrue(PersistentAttributeInterceptable.class.isAssignableFrom(Member.class));
+
+        //given
+        Team team = new Team("lazyTeam");
+        em.persist(team);
+        Member saved = new Member("lazyTeamMember", 9, team);
+        em.persist(saved);
+        em.flush();
+        em.clear();
+        Member member = em.find(Member.class, saved.getId());
+
+        //when
+        queryCounter.start();
+        Team loaded = member.getTeam();
+        int selects = queryCounter.selectCount();
+        queryCounter.stop();
+
+        //then
+        assertThat(selects).isGreaterThanOrEqualTo(1);
+        assertThat(loaded.getName()).isEqualTo("lazyTeam");
+    }
+
+    @Test
+    public void listLookupsFetchTeam(){
+        //given
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("listTeam" + i);
+            em.persist(team);
+            em.persist(new Member("listTeamMember" + i, 8, team));
+        }
+        em.flush();
+        em.clear();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(8);
+        condition.setAgeLoe(8);
+
+        //when
+        //목록 API 처럼 조회한 뒤에 팀 이름을 읽는다
+        queryCounter.start();
+        List<String> byAge = teamNames(memberRepository.findByAge(8, PageRequest.of(0, 20)).getContent());
+        List<String> byUsername = teamNames(memberRepository.findByUsername("listTeamMember0"));
+        List<String> searched = teamNames(memberRepository.search(condition, PageRequest.of(0, 20)).getContent());
+        int selects = queryCounter.selectCount();
+        queryCounter.stop();
+
+        //then
+        //조회마다 select 한번 (결과가 페이지 크기보다 적어서 카운트 쿼리는 생략된다)
+        assertThat(selects).isEqualTo(3);
+        assertThat(byAge).hasSize(10).doesNotContainNull();
+        assertThat(byUsername).containsExactly("listTeam0");
+        assertThat(searched).hasSize(10).doesNotContainNull();
+    }
+
+    private static List<String> teamNames(List<Member> members) {
+        return members.stream().map(member -> member.getTeam().getName()).collect(toList());
+    }
+}
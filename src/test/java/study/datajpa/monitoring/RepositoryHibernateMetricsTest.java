@@ -0,0 +1,66 @@
+package study.datajpa.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class RepositoryHibernateMetricsTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void recordPerRepositoryMethod(){
+        //given
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team team = teamRepository.save(new Team("metricsTeam"));
+            Member member = memberRepository.save(new Member("hibernateMetricsMember", 4, team));
+            return new Long[]{member.getId(), team.getId()};
+        });
+        em.getEntityManagerFactory().getCache().evictAll();
+        double entityLoads = count(RepositoryHibernateMetrics.ENTITY_LOADS, "MemberRepository.findById");
+        double lazyLoads = count(RepositoryHibernateMetrics.COLLECTION_LOADS, RepositoryInvocationContext.UNATTRIBUTED);
+
+        //when
+        //트랜잭션 밖에서 호출하면 리파지토리 메서드 안에서 커넥션을 얻는다
+        memberRepository.findById(ids[0]);
+        //리파지토리 밖에서 지연로딩
+        transactionTemplate.execute(status -> teamRepository.findById(ids[1]).get().getMembers().size());
+
+        //then
+        assertThat(count(RepositoryHibernateMetrics.ENTITY_LOADS, "MemberRepository.findById")).isGreaterThan(entityLoads);
+        assertThat(count(RepositoryHibernateMetrics.COLLECTION_LOADS, RepositoryInvocationContext.UNATTRIBUTED)).isGreaterThan(lazyLoads);
+        Timer connectionAcquire = Metrics.globalRegistry.find(RepositorySessionMetrics.CONNECTION_ACQUIRE)
+                .tag("method", "MemberRepository.findById").timer();
+        assertThat(connectionAcquire).isNotNull();
+        assertThat(connectionAcquire.count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.find(RepositoryMethodTracker.INVOCATIONS)
+                .tag("method", "MemberRepository.findById").timer()).isNotNull();
+        //하이버네이트 전체 통계와 커넥션 풀 지표는 스프링 부트가 등록한다
+        assertThat(meterRegistry.find("hibernate.entities.loads").meter()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.acquire").timer()).isNotNull();
+    }
+
+    private double count(String name, String method) {
+        Counter counter = meterRegistry.find(name).tag("method", method).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
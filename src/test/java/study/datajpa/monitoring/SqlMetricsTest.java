@@ -0,0 +1,50 @@
+package study.datajpa.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@Rollback(value = false)
+class SqlMetricsTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired SqlMetrics sqlMetrics;
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void recordPerRepositoryMethod(){
+        //given
+        memberRepository.save(new Member("metricsMember", 19));
+        memberRepository.save(new Member("metricsMember", 19));
+        em.flush();
+
+        //when
+        memberRepository.findUser("metricsMember", 19);
+        memberJpaRepository.findByUsernameAndAgeGreaterThen("metricsMember", 18);
+
+        //then
+        Map<String, Object> springData = sqlMetrics.snapshot("MemberRepository.findUser");
+        Map<String, Object> jpa = sqlMetrics.snapshot("MemberJpaRepository.findByUsernameAndAgeGreaterThen");
+        assertThat(springData).isNotNull();
+        assertThat((Long) springData.get("statements")).isGreaterThanOrEqualTo(1);
+        assertThat((Long) springData.get("rows")).isGreaterThanOrEqualTo(2);
+        //컬럼 값 크기는 조회 범위 프로필로 실행할 때만 센다
+        assertThat((Long) springData.get("bytes")).isZero();
+        assertThat(jpa).isNotNull();
+        assertThat((Long) jpa.get("rows")).isGreaterThanOrEqualTo(2);
+    }
+}
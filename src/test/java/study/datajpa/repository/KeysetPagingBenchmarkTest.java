@@ -0,0 +1,120 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.*;
+
+//offset 페이징과 키셋 페이징의 페이지 깊이별 응답시간 비교
+//./gradlew benchmark 로 실행한다 (일반 test 에서는 제외)
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:keyset-benchmark;DB_CLOSE_DELAY=-1",
+        "logging.level.org.hibernate.SQL=info"
+})
+class KeysetPagingBenchmarkTest {
+
+    static final int AGE = 30;
+    static final int PAGE_SIZE = 10;
+    static final int PAGES = 10_000;
+    static final int REPEAT = 20;
+    //키셋 페이징은 깊이와 상관없이 인덱스 범위 검색이라 가장 깊은 페이지도 첫 페이지의 이 배수 안에 들어와야 한다
+    static final double MAX_KEYSET_DEPTH_RATIO = 5.0;
+    //측정 잡음 - 첫 페이지가 수십 마이크로초라 비율만 보면 흔들린다
+    static final long NOISE_NANOS = 1_000_000;
+
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @PersistenceContext EntityManager em;
+
+    @BeforeEach
+    public void setUp(){
+        Long count = transactionTemplate.execute(status -> memberJpaRepository.totalCount(AGE));
+        if (count >= (long) PAGE_SIZE * PAGES) {
+            return;
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE * PAGES; i++) {
+            members.add(new Member(String.format("member%06d", i), AGE));
+        }
+        transactionTemplate.execute(status -> memberJpaRepository.saveAllBatched(members, 1000));
+    }
+
+    @Test
+    public void deepPageLatency(){
+        long firstKeysetNanos = 0;
+        long deepKeysetNanos = 0;
+        long deepOffsetNanos = 0;
+        for (int page : new int[]{1, 10, 100, 1_000, PAGES}) {
+            int offset = (page - 1) * PAGE_SIZE;
+            String token = tokenBefore(offset);
+
+            List<Member> offsetResult = transactionTemplate.execute(status ->
+                    memberJpaRepository.findByPage(AGE, offset, PAGE_SIZE));
+            List<Member> keysetResult = transactionTemplate.execute(status ->
+                    memberJpaRepository.findByPageKeyset(AGE, token, PAGE_SIZE).getContent());
+            assertThat(keysetResult).extracting("id")
+                    .containsExactlyElementsOf(offsetResult.stream().map(Member::getId).collect(toList()));
+
+            long offsetNanos = measure(() -> memberJpaRepository.findByPage(AGE, offset, PAGE_SIZE));
+            long keysetNanos = measure(() -> memberJpaRepository.findByPageKeyset(AGE, token, PAGE_SIZE));
+            System.out.printf("page=%6d offset=%8.3fms keyset=%8.3fms%n",
+                    page, offsetNanos / 1_000_000.0, keysetNanos / 1_000_000.0);
+            if (page == 1) {
+                firstKeysetNanos = keysetNanos;
+            }
+            if (page == PAGES) {
+                deepKeysetNanos = keysetNanos;
+                deepOffsetNanos = offsetNanos;
+            }
+        }
+
+        //키셋은 깊이와 상관없이 일정하고, 가장 깊은 페이지에서는 offset 보다 빠르다
+        assertThat(deepKeysetNanos).isLessThanOrEqualTo((long) (firstKeysetNanos * MAX_KEYSET_DEPTH_RATIO) + NOISE_NANOS);
+        assertThat(deepKeysetNanos).isLessThan(deepOffsetNanos);
+    }
+
+    //offset 번째 행 바로 앞 행의 커서 (첫 페이지는 null)
+    private String tokenBefore(int offset){
+        if (offset == 0) {
+            return null;
+        }
+        return transactionTemplate.execute(status -> {
+            Member last = em.createQuery(
+                    "select m from Member m where m.age = :age order by m.username desc, m.id asc", Member.class)
+                    .setParameter("age", AGE)
+                    .setFirstResult(offset - 1)
+                    .setMaxResults(1)
+                    .getSingleResult();
+            return KeysetCursor.of(last).encode();
+        });
+    }
+
+    //워밍업 후 REPEAT 번 실행한 중앙값 (GC 같은 튀는 값에 흔들리지 않게)
+    private long measure(Supplier<?> query){
+        for (int i = 0; i < REPEAT; i++) {
+            transactionTemplate.execute(status -> query.get());
+        }
+        long[] samples = new long[REPEAT];
+        for (int i = 0; i < REPEAT; i++) {
+            long start = System.nanoTime();
+            transactionTemplate.execute(status -> query.get());
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[REPEAT / 2];
+    }
+}
@@ -0,0 +1,133 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+//스냅샷은 커밋된 뒤에 버려지는지 보기 위해 테스트 트랜잭션 없이 실행한다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:aggregate-snapshot;DB_CLOSE_DELAY=-1")
+class MemberAggregateSnapshotTest {
+    @Autowired MemberAggregateSnapshot memberAggregateSnapshot;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void invalidateAfterCommit(){
+        //given
+        long[] before = memberAggregateSnapshot.countMembersByAge();
+
+        //when
+        transactionTemplate.execute(status -> {
+            memberRepository.saveAndFlush(new Member("snapshotMember", 7));
+            //커밋 전에는 그대로 남아있다
+            assertThat(memberAggregateSnapshot.countMembersByAge()).isSameAs(before);
+            return null;
+        });
+        long[] afterCommit = memberAggregateSnapshot.countMembersByAge();
+
+        //then
+        assertThat(afterCommit).isNotSameAs(before);
+        assertThat(afterCommit[7]).isEqualTo(before[7] + 1);
+    }
+
+    @Test
+    public void keepSnapshotAfterRollback(){
+        long[] before = memberAggregateSnapshot.countMembersByAge();
+
+        transactionTemplate.execute(status -> {
+            memberRepository.saveAndFlush(new Member("rolledBackSnapshotMember", 7));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(memberAggregateSnapshot.countMembersByAge()).isSameAs(before);
+    }
+
+    @Test
+    public void firstReadInsideRolledBackTransaction(){
+        //given
+        long[] before = memberAggregateSnapshot.countMembersByAge();
+        memberAggregateSnapshot.invalidate();
+
+        //when
+        //비어 있는 스냅샷을 쓰기 트랜잭션 안에서 처음 읽는다
+        long[] inside = transactionTemplate.execute(status -> {
+            memberRepository.saveAndFlush(new Member("uncommittedSnapshotMember", 8));
+            long[] counts = memberAggregateSnapshot.countMembersByAge();
+            status.setRollbackOnly();
+            return counts;
+        });
+        long[] afterRollback = memberAggregateSnapshot.countMembersByAge();
+
+        //then
+        //커밋 안된 회원은 집계에 들어가지 않는다
+        assertThat(inside[8]).isEqualTo(before[8]);
+        assertThat(afterRollback[8]).isEqualTo(before[8]);
+    }
+
+    @Test
+    public void dropRebuildInvalidatedWhileLoading(){
+        //given
+        //첫 집계 도중에 다른 트랜잭션이 커밋되어 스냅샷이 버려진 상황을 만든다
+        MemberRepository repository = mock(MemberRepository.class);
+        AtomicReference<MemberAggregateSnapshot> snapshot = new AtomicReference<>();
+        long[] stale = new long[MemberAggregateSnapshot.MAX_AGE + 1];
+        long[] fresh = new long[MemberAggregateSnapshot.MAX_AGE + 1];
+        given(repository.countMembersPerTeam()).willReturn(TeamMemberCounts.of(new long[0], new long[0]));
+        given(repository.countMembersByAge()).willAnswer(invocation -> {
+            snapshot.get().invalidate();
+            return stale;
+        }).willReturn(fresh);
+        snapshot.set(new MemberAggregateSnapshot(repository, transactionManager));
+
+        //when
+        long[] first = snapshot.get().countMembersByAge();
+        long[] second = snapshot.get().countMembersByAge();
+        long[] third = snapshot.get().countMembersByAge();
+
+        //then
+        //버려지기 전에 읽은 값은 돌려주기만 하고 저장하지 않아서 다음 호출이 다시 집계한다
+        assertThat(first).isSameAs(stale);
+        assertThat(second).isSameAs(fresh);
+        assertThat(third).isSameAs(fresh);
+        verify(repository, times(2)).countMembersByAge();
+    }
+
+    @Test
+    public void clampOutOfRangeAges(){
+        //given
+        long[] before = memberRepository.countMembersByAge();
+        transactionTemplate.execute(status -> {
+            memberRepository.save(new Member("negativeAgeMember", -5));
+            memberRepository.save(new Member("hugeAgeMember", Integer.MAX_VALUE));
+            return null;
+        });
+
+        //when
+        long[] countsByAge = memberRepository.countMembersByAge();
+        long[] histogram = memberRepository.ageHistogram(50, 4);
+
+        //then
+        //배열 길이는 나이가 아니라 MAX_AGE 로 정해진다
+        assertThat(countsByAge).hasSize(MemberAggregateSnapshot.MAX_AGE + 1);
+        assertThat(countsByAge[0]).isEqualTo(before[0] + 1);
+        assertThat(countsByAge[MemberAggregateSnapshot.MAX_AGE]).isEqualTo(before[MemberAggregateSnapshot.MAX_AGE] + 1);
+        assertThat(histogram).hasSize(4);
+        assertThat(histogram).isEqualTo(MemberAggregates.histogram(countsByAge, 50, 4));
+        //마지막 구간이 MAX_AGE 보다 뒤에서 시작하면 거절한다
+        assertThatThrownBy(() -> memberAggregateSnapshot.ageHistogram(100, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
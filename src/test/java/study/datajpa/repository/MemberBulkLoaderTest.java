@@ -0,0 +1,105 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.dto.MemberExportDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulk-load;DB_CLOSE_DELAY=-1")
+class MemberBulkLoaderTest {
+    @Autowired MemberBulkLoader memberBulkLoader;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+
+    @Test
+    public void loadWithGeneratedIds(){
+        //given
+        Team team = teamRepository.save(new Team("bulkLoadTeam"));
+
+        //when
+        MemberBulkLoadResult result = memberBulkLoader.load(IntStream.range(0, 2500)
+                .mapToObj(i -> new MemberExportDto(null, "bulkLoadMember" + i, 1, i % 2 == 0 ? "bulkLoadTeam" : null)));
+        //엔티티로 저장한 회원과 식별자가 겹치지 않는다
+        Member saved = memberRepository.save(new Member("bulkLoadAfter", 1));
+
+        //then
+        assertThat(result.getRows()).isEqualTo(2500);
+        List<Member> loaded = memberRepository.findByUsernames(names("bulkLoadMember", 2500));
+        assertThat(loaded).hasSize(2500);
+        assertThat(loaded).extracting(Member::getVersion).containsOnly(0L);
+        assertThat(memberRepository.countMembersPerTeam().get(team.getId())).isEqualTo(1250);
+        assertThat(loaded).extracting(Member::getId).doesNotContain(saved.getId());
+    }
+
+    @Test
+    public void loadCsvWithIdsMovesSequence(){
+        //given
+        String csv = "member_id,username,age,team_name\n" +
+                "900001,bulkLoadCsv1,1,\n" +
+                "900002,\"bulkLoad,Csv2\",1,\n";
+
+        //when
+        MemberBulkLoadResult result = memberBulkLoader.loadCsv(new StringReader(csv));
+        //이미 메모리에 받아둔 식별자 블록(50개)을 다 쓰고 나면 옮겨진 시퀀스에서 받는다
+        List<Member> saved = new ArrayList<>();
+        for (int i = 0; i < 51; i++) {
+            saved.add(memberRepository.save(new Member("bulkLoadCsvAfter" + i, 1)));
+        }
+
+        //then
+        assertThat(result.getRows()).isEqualTo(2);
+        assertThat(memberRepository.findById(900002L)).get()
+                .extracting(Member::getUsername).isEqualTo("bulkLoad,Csv2");
+        assertThat(saved.get(50).getId()).isGreaterThan(900002L);
+    }
+
+    @Test
+    public void rejectIdsInsideHandedOutBlock(){
+        //given
+        //엔티티로 저장하면 이 JVM 이 식별자 블록을 받아둔다
+        Member saved = memberRepository.save(new Member("bulkLoadBlockOwner", 1));
+        List<MemberExportDto> rows = new ArrayList<>();
+        rows.add(new MemberExportDto(5_000_000L, "bulkLoadOutsideBlock", 1, null));
+        rows.add(new MemberExportDto(saved.getId(), "bulkLoadInsideBlock", 1, null));
+
+        //when
+        Throwable thrown = catchThrowable(() -> memberBulkLoader.load(rows.iterator()));
+
+        //then
+        //PK 충돌이 나기 전에 거절하고 앞에서 넣은 행도 롤백된다
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("member_id " + saved.getId());
+        assertThat(memberRepository.findById(5_000_000L)).isEmpty();
+    }
+
+    @Test
+    public void unknownTeamRollsBack(){
+        //given
+        List<MemberExportDto> rows = new ArrayList<>();
+        rows.add(new MemberExportDto(null, "bulkLoadUnknown1", 1, null));
+        rows.add(new MemberExportDto(null, "bulkLoadUnknown2", 1, "noSuchTeam"));
+
+        //when
+        Throwable thrown = catchThrowable(() -> memberBulkLoader.load(rows.iterator()));
+
+        //then
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("noSuchTeam");
+        assertThat(memberRepository.findByUsernames(names("bulkLoadUnknown", 3))).isEmpty();
+    }
+
+    private List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberExportDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.*;
+
+//파티션 파일을 모두 합치면 전체 회원이 식별자 순서대로 한번씩 나오는지 확인한다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:export;DB_CLOSE_DELAY=-1")
+class MemberExporterTest {
+    @Autowired MemberExporter memberExporter;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    EntityManager em;
+
+    static final int MEMBER_COUNT = 10_000;
+
+    @Test
+    public void exportPartitions(@TempDir Path directory) throws Exception {
+        //given
+        List<MemberExportDto> expected = transactionTemplate.execute(status -> {
+            Team team = teamRepository.save(new Team("exportTeam"));
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                //쉼표 / 큰따옴표가 들어간 이름과 팀이 없는 회원도 섞는다
+                String username = i % 100 == 0 ? "export,\"member\"" + i : "exportMember" + i;
+                members.add(new Member(username, i % 50, i % 7 == 0 ? null : team));
+            }
+            memberRepository.saveAllBatched(members, 1000);
+            return em.createQuery("select new study.datajpa.dto.MemberExportDto(m.id, m.username, m.age, t.name)" +
+                    " from Member m left join m.team t order by m.id", MemberExportDto.class)
+                    .getResultList();
+        });
+
+        //when
+        MemberExportResult csv = memberExporter.export(directory.resolve("csv"), MemberExportFormat.CSV, 3);
+        MemberExportResult columnar = memberExporter.export(directory.resolve("columnar"), MemberExportFormat.COLUMNAR, 3);
+
+        //then
+        assertThat(csv.getRows()).isEqualTo(MEMBER_COUNT);
+        assertThat(csv.getFiles()).hasSize(3);
+        List<String> lines = new ArrayList<>();
+        for (Path file : csv.getFiles()) {
+            List<String> fileLines = Files.readAllLines(file, UTF_8);
+            assertThat(fileLines.get(0) + "\n").isEqualTo(MemberCsvWriter.HEADER);
+            lines.addAll(fileLines.subList(1, fileLines.size()));
+        }
+        assertThat(lines).hasSize(MEMBER_COUNT);
+        assertThat(lines.get(0)).isEqualTo(expected.get(0).getId() + ",\"export,\"\"member\"\"0\",0,");
+        assertThat(lines.get(1)).isEqualTo(expected.get(1).getId() + ",exportMember1,1,exportTeam");
+
+        List<MemberExportDto> columnarRows = new ArrayList<>();
+        for (Path file : columnar.getFiles()) {
+            columnarRows.addAll(MemberColumnarFile.read(file));
+        }
+        assertThat(columnarRows).isEqualTo(expected);
+        assertThat(columnar.getBytes()).isLessThan(csv.getBytes());
+    }
+}
@@ -3,13 +3,19 @@ package study.datajpa.repository;
 
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Member;
+import study.datajpa.support.DetectNPlusOne;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -20,9 +26,12 @@ import static org.junit.jupiter.api.Assertions.*;
 //@Rollback(value = false)
 @Transactional
 @Rollback(value = false)
+@DetectNPlusOne
 class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
+    @PersistenceContext
+    EntityManager em;
 
     @Test
     public void testMember(){
@@ -128,4 +137,55 @@ class MemberJpaRepositoryTest {
         int resultCount = memberJpaRepository.bulkAgePlus(20);
         assertThat(resultCount).isEqualTo(3);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void saveAllBatched(){
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            members.add(new Member("batch" + i, 1));
+        }
+        //실제로 DB에 보낸 statement 수를 세기 위해 하이버네이트 통계를 켠다
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        em.flush();
+        long before = statistics.getPrepareStatementCount();
+
+        //when
+        int saved = memberJpaRepository.saveAllBatched(members, 100);
+        long statementCount = statistics.getPrepareStatementCount() - before;
+        statistics.setStatisticsEnabled(statisticsEnabled);
+
+        //then
+        //건건이 저장하면 시퀀스 1000번 + insert 1000번 = 2000번
+        //시퀀스 50개씩 확보(20번) + insert 배치(10번) 로 줄어든다.
+        System.out.println("statementCount = " + statementCount);
+        assertThat(saved).isEqualTo(1000);
+        assertThat(members.get(999).getId()).isNotNull();
+        assertThat(statementCount).isLessThanOrEqualTo(40);
+    }
+
+    @Test
+    public void keysetPaging(){
+        //given
+        memberJpaRepository.save(new Member("Member1",11));
+        memberJpaRepository.save(new Member("Member2",11));
+        memberJpaRepository.save(new Member("Member3",11));
+        memberJpaRepository.save(new Member("Member4",11));
+        memberJpaRepository.save(new Member("Member5",11));
+
+        //when
+        //첫 페이지는 토큰 없이 조회하고 다음 페이지는 받은 토큰으로 조회한다
+        KeysetSlice<Member> first = memberJpaRepository.findByPageKeyset(11, null, 3);
+        KeysetSlice<Member> second = memberJpaRepository.findByPageKeyset(11, first.getNextToken(), 3);
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("Member5", "Member4", "Member3");
+        assertThat(first.isFirst()).isTrue();
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("Member2", "Member1");
+        assertThat(second.isFirst()).isFalse();
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getNextToken()).isNull();
+    }
+}
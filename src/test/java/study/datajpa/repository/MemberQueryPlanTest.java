@@ -0,0 +1,224 @@
+package study.datajpa.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.support.QueryPlanVerifier;
+import study.datajpa.support.QueryPlanVerifier.QueryPlan;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+//Member 를 조건으로 찾는 리파지토리 메서드가 인덱스를 타는지 EXPLAIN 으로 확인한다
+//MemberRepository / TeamRepository 의 쿼리 메서드는 리플렉션으로 모두 호출해 보기 때문에 새 finder 도 따로 등록하지 않아도 검사된다.
+//조건 없이 전체를 읽는 것이 맞는 메서드만 WHOLE_TABLE 에 적는다.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:explain;DB_CLOSE_DELAY=-1")
+@Transactional
+class MemberQueryPlanTest {
+    private static final String MEMBER = "MEMBER";
+    private static final String TEAM = "TEAM";
+
+    //where 없이 전체를 읽도록 만든 메서드
+    private static final Set<String> WHOLE_TABLE = new HashSet<>(Arrays.asList(
+            "MemberRepository.findAll",
+            "MemberRepository.findUsernameList",
+            "MemberRepository.findMemberDto",
+            "MemberRepository.findMemberFetchJoin",
+            "MemberRepository.findMemberEntityGraph",
+            "MemberRepository.findMemberSummary",
+            "TeamRepository.findAllWithMembers",
+            "TeamRepository.findAllIdAndName"));
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired QueryPlanVerifier queryPlanVerifier;
+    @PersistenceContext
+    EntityManager em;
+
+    @BeforeEach
+    public void setUp(){
+        Team teamA = new Team("planTeamA");
+        Team teamB = new Team("planTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            members.add(new Member("planMember" + i, i % 100, i < 10 ? (i % 2 == 0 ? teamA : teamB) : null));
+        }
+        memberJpaRepository.saveAllBatched(members, 500);
+        em.getEntityManagerFactory().getCache().evictAll();
+    }
+
+    @Test
+    public void usernameLookups(){
+        List<QueryPlan> plans = queryPlanVerifier.assertNoFullScan(MEMBER, () -> {
+            memberRepository.findByUsername("planMember1");
+            memberRepository.findByUsernameAndAgeGreaterThan("planMember2", 1);
+            memberRepository.findUser("planMember3", 3);
+            memberRepository.findByNames(Arrays.asList("planMember4", "planMember5"));
+            memberRepository.findOptionalByUsername("planMember6");
+            memberRepository.findProjectionsByUsername("planMember7");
+            memberJpaRepository.findByUsername("planMember8");
+            memberJpaRepository.findByUsernameAndAgeGreaterThen("planMember9", 1);
+            memberRepository.search(usernameCondition("planMember10"), PageRequest.of(0, 3));
+        });
+
+        assertThat(plans).allSatisfy(plan ->
+                assertThat(plan.getPlan()).containsIgnoringCase("IDX_MEMBER_USERNAME_AGE"));
+    }
+
+    @Test
+    public void ageLookups(){
+        List<QueryPlan> plans = queryPlanVerifier.assertNoFullScan(MEMBER, () -> {
+            memberRepository.findByAge(10, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username")));
+            memberRepository.findByAgeKeyset(10, null, 3);
+            memberJpaRepository.findByPage(10, 0, 3);
+            memberJpaRepository.totalCount(10);
+            memberRepository.search(ageCondition(10, 11), PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username")));
+        });
+
+        assertThat(plans).allSatisfy(plan ->
+                assertThat(plan.getPlan()).containsIgnoringCase("IDX_MEMBER_AGE_USERNAME_ID"));
+    }
+
+    @Test
+    public void bulkUpdate(){
+        //현재 트랜잭션 안에서 호출하면 청크 update 가 이 스레드에서 순서대로 나간다
+        //청크 범위를 구하는 min/max 는 식별자만 읽는 조건 없는 쿼리라 허용한다
+        List<QueryPlan> plans = queryPlanVerifier.assertNoFullScan(MEMBER, () -> memberRepository.bulkAgePlus(90),
+                sql -> sql.toLowerCase(Locale.ROOT).contains("min("));
+
+        assertThat(plans).isNotEmpty();
+    }
+
+    @Test
+    public void everyQueryMethod(){
+        assertQueryMethods(MemberRepository.class, memberRepository);
+        assertQueryMethods(TeamRepository.class, teamRepository);
+    }
+
+    //인터페이스에 선언된 쿼리 메서드를 하나씩 호출하고 나간 쿼리를 검사한다
+    //default 메서드는 다른 쿼리 메서드를 부르는 것이라 건너뛴다.
+    private void assertQueryMethods(Class<?> repositoryInterface, Object repository) {
+        List<Method> methods = new ArrayList<>(Arrays.asList(repositoryInterface.getDeclaredMethods()));
+        methods.sort(Comparator.comparing(Method::toGenericString));
+        for (Method method : methods) {
+            if (method.isDefault() || method.isSynthetic() || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            String name = repositoryInterface.getSimpleName() + "." + method.getName();
+            Object[] args = argumentsFor(method);
+
+            //쿼리 캐시에 남은 결과를 쓰면 SQL 이 나가지 않는다
+            em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictAllRegions();
+            List<QueryPlan> plans = queryPlanVerifier.explain(() -> invoke(method, repository, args));
+
+            assertThat(plans).as("%s executed no statement", name).isNotEmpty();
+            for (QueryPlan plan : plans) {
+                if (WHOLE_TABLE.contains(name)) {
+                    continue;
+                }
+                assertThat(plan.isFiltered())
+                        .as("%s has no where clause - filter it or add it to WHOLE_TABLE%nsql: %s", name, plan.getSql())
+                        .isTrue();
+                assertThat(plan.isTableScan(MEMBER) || plan.isTableScan(TEAM))
+                        .as("%s scans the whole table%nsql: %s%nplan: %s", name, plan.getSql(), plan.getPlan())
+                        .isFalse();
+            }
+        }
+    }
+
+    private Object[] argumentsFor(Method method) {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = argumentFor(method, types[i]);
+        }
+        return args;
+    }
+
+    private Object argumentFor(Method method, Type type) {
+        Class<?> raw = type instanceof ParameterizedType
+                ? (Class<?>) ((ParameterizedType) type).getRawType()
+                : type instanceof Class ? (Class<?>) type : Object.class;
+        if (raw == String.class) {
+            return "planMember1";
+        }
+        if (raw == int.class || raw == Integer.class) {
+            return 10;
+        }
+        if (raw == long.class || raw == Long.class) {
+            return 1L;
+        }
+        if (Pageable.class.isAssignableFrom(raw)) {
+            return PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"));
+        }
+        if (raw == Specification.class) {
+            return MemberSpecs.search(usernameCondition("planMember1"));
+        }
+        //동적 프로젝션의 반환 타입
+        if (raw == Class.class) {
+            return Member.class;
+        }
+        if (Collection.class.isAssignableFrom(raw) && type instanceof ParameterizedType) {
+            Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (element == String.class) {
+                return Arrays.asList("planMember4", "planMember5");
+            }
+            if (element == Team.class) {
+                return teamRepository.findAll();
+            }
+        }
+        throw new AssertionError("no sample argument for " + type.getTypeName() + " of " + method);
+    }
+
+    private static void invoke(Method method, Object repository, Object[] args) {
+        try {
+            method.invoke(repository, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError(method + " failed", e.getCause());
+        }
+    }
+
+    private MemberSearchCondition usernameCondition(String username) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        return condition;
+    }
+
+    private MemberSearchCondition ageCondition(int ageGoe, int ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -3,6 +3,8 @@ package study.datajpa.repository;
 
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -13,24 +15,35 @@ import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberSearchCondition;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.monitoring.SqlMetrics;
+import study.datajpa.repository.support.PageCountCache;
+import study.datajpa.support.DetectNPlusOne;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
 @Rollback(value = false)
+@DetectNPlusOne
 class MemberRepositoryTest {
     @Autowired MemberRepository memberRepository;
     @Autowired TeamRepository teamRepository;
+    @Autowired PageCountCache pageCountCache;
+    @Autowired SqlMetrics sqlMetrics;
     @PersistenceContext
     EntityManager em;
 
@@ -296,4 +309,301 @@ class MemberRepositoryTest {
         Member member = memberRepository.findReadOnlyByUsername("member1");
         member.setUsername("member2");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void keysetPaging(){
+        //given
+        //username 이 같으면 id 순서로 이어서 읽는다
+        memberRepository.save(new Member("Member1",12));
+        memberRepository.save(new Member("Member2",12));
+        memberRepository.save(new Member("Member2",12));
+        memberRepository.save(new Member("Member3",12));
+
+        //when
+        KeysetSlice<Member> first = memberRepository.findByAgeKeyset(12, null, 2);
+        KeysetSlice<Member> second = memberRepository.findByAgeKeyset(12, first.getNextToken(), 2);
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("Member3", "Member2");
+        assertThat(second.getContent()).extracting("username").containsExactly("Member2", "Member1");
+        assertThat(second.getContent().get(0).getId()).isGreaterThan(first.getContent().get(1).getId());
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void pagingWithCachedCount(){
+        //given
+        for (int i = 1; i <= 5; i++) {
+            memberRepository.save(new Member("Member" + i, 13));
+        }
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"));
+
+        //when
+        Page<Member> page = memberRepository.findByAgeCachedCount(13, pageRequest);
+        //카운트가 캐시되어 있으면 새로 저장한 회원은 ttl 이 지날때까지 건수에 반영되지 않는다
+        memberRepository.save(new Member("Member6", 13));
+        Page<Member> cached = memberRepository.findByAgeCachedCount(13, pageRequest);
+        pageCountCache.evictAll();
+        Page<Member> refreshed = memberRepository.findByAgeCachedCount(13, pageRequest);
+
+        //then
+        assertThat(page.getContent()).extracting("username").containsExactly("Member5", "Member4", "Member3");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(cached.getTotalElements()).isEqualTo(5);
+        assertThat(refreshed.getTotalElements()).isEqualTo(6);
+
+        //마지막 페이지는 카운트 쿼리 없이 offset + 조회건수로 전체 건수를 계산한다
+        Page<Member> last = memberRepository.findByAgeCachedCount(13, PageRequest.of(1, 4));
+        assertThat(last.getContent().size()).isEqualTo(2);
+        assertThat(last.getTotalElements()).isEqualTo(6);
+    }
+
+    @Test
+    public void secondLevelCache(){
+        //given
+        Team team = teamRepository.save(new Team("cachedTeam"));
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        //when
+        //처음 조회할 때 2차 캐시에 올라가고 영속성 컨텍스트를 비운 뒤 다시 조회하면 캐시에서 꺼내온다
+        teamRepository.findById(team.getId());
+        em.clear();
+        long hitCount = statistics.getSecondLevelCacheHitCount();
+        Team cached = teamRepository.findById(team.getId()).get();
+
+        //then
+        assertThat(cached.getName()).isEqualTo("cachedTeam");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hitCount);
+    }
+
+    @Test
+    public void bulkUpdateEvictsSecondLevelCache(){
+        //given
+        Member member = memberRepository.save(new Member("cachedMember", 80));
+        em.flush();
+        em.clear();
+        memberRepository.findById(member.getId());
+        memberRepository.findByUsername("cachedMember");
+
+        //when
+        //벌크 수정은 영속성 컨텍스트를 거치지 않지만 하이버네이트가 Member 캐시 영역과 쿼리 캐시를 무효화 한다
+        memberRepository.bulkAgePlus(80);
+
+        //then
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(81);
+        assertThat(memberRepository.findByUsername("cachedMember").get(0).getAge()).isEqualTo(81);
+    }
+
+    @Test
+    public void streamAll(){
+        //given
+        Team team = teamRepository.save(new Team("streamTeam"));
+        for (int i = 1; i <= 5; i++) {
+            memberRepository.save(new Member("streamMember" + i, 14, team));
+        }
+
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long putsBefore = statistics.getSecondLevelCachePutCount();
+
+        //when
+        //fetchSize(2) 건마다 스트림이 읽은 엔티티만 준영속으로 만들면서 읽는다
+        long memberCount;
+        try (Stream<Member> members = memberRepository.streamAll(2)) {
+            memberCount = members.filter(m -> m.getUsername().startsWith("streamMember")).count();
+        }
+        List<MemberDto> dtos;
+        try (Stream<MemberDto> stream = memberRepository.streamMemberDto(2)) {
+            dtos = stream.filter(dto -> "streamTeam".equals(dto.getTeamName())).collect(toList());
+        }
+
+        //then
+        assertThat(memberCount).isEqualTo(5);
+        //전체를 훑어도 2차 캐시에 넣지 않는다 (CacheMode.IGNORE)
+        assertThat(statistics.getSecondLevelCachePutCount()).isEqualTo(putsBefore);
+        assertThat(dtos).extracting("username")
+                .containsExactlyInAnyOrder("streamMember1", "streamMember2", "streamMember3", "streamMember4", "streamMember5");
+    }
+
+    @Test
+    public void streamAllKeepsCallerChanges(){
+        //given
+        String prefix = "streamCaller" + System.nanoTime() + "-";
+        Team team = teamRepository.save(new Team("streamCallerTeam"));
+        for (int i = 1; i <= 5; i++) {
+            memberRepository.save(new Member(prefix + i, 37, team));
+        }
+        em.flush();
+        //스트림과 무관한 관리 엔티티를 flush 하지 않은 채로 바꿔 둔다
+        String renamed = "streamRenamed" + System.nanoTime();
+        team.setName(renamed);
+
+        //when
+        //배치(2건)를 여러 번 넘기도록 끝까지 읽는다
+        long memberCount;
+        try (Stream<Member> members = memberRepository.streamAll(2)) {
+            memberCount = members.filter(m -> m.getUsername().startsWith(prefix)).count();
+        }
+
+        //then
+        assertThat(memberCount).isEqualTo(5);
+        assertThat(em.contains(team)).isTrue();
+        em.flush();
+        em.clear();
+        assertThat(teamRepository.findById(team.getId()).get().getName()).isEqualTo(renamed);
+    }
+
+    @Test
+    public void projections(){
+        //given
+        Team team = teamRepository.save(new Team("projectionTeam"));
+        memberRepository.save(new Member("projectionMember", 17, team));
+        em.flush();
+        em.clear();
+
+        //when
+        List<UsernameOnly> usernameOnly = memberRepository.findProjectionsByUsername("projectionMember");
+        List<UsernameOnlyDto> dtos = memberRepository.findProjectionsByUsername("projectionMember", UsernameOnlyDto.class);
+        List<UsernameOnly> olderThan = memberRepository.findProjectionsByUsernameAndAgeGreaterThan("projectionMember", 16, UsernameOnly.class);
+        List<MemberSummary> summaries = memberRepository.findMemberSummary();
+
+        //then
+        assertThat(usernameOnly).extracting(UsernameOnly::getUsername).containsExactly("projectionMember");
+        assertThat(dtos).extracting(UsernameOnlyDto::getUsername).containsExactly("projectionMember");
+        assertThat(olderThan).hasSize(1);
+        assertThat(summaries).filteredOn(summary -> "projectionMember".equals(summary.getUsername()))
+                .extracting(MemberSummary::getTeamName).containsExactly("projectionTeam");
+    }
+
+    @Test
+    public void findByUsernamesBulk(){
+        //given
+        List<String> names = new ArrayList<>();
+        List<Member> saved = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            saved.add(memberRepository.save(new Member("bulkLookupMember" + i, 2)));
+            names.add("bulkLookupMember" + i);
+        }
+        em.flush();
+
+        List<String> duplicated = new ArrayList<>(names);
+        duplicated.addAll(names);
+        List<String> chunked = withMissingNames(names, 1_000);
+        List<String> tempTable = withMissingNames(names, 5_000);
+
+        //when
+        List<Member> single = memberRepository.findByUsernames(duplicated);
+        List<Member> fromChunks = memberRepository.findByUsernames(chunked);
+        List<Member> fromTempTable = memberRepository.findByUsernames(tempTable);
+
+        //then
+        //영속성 컨텍스트에 있던 인스턴스가 그대로 반환된다
+        assertThat(single).hasSize(30).containsExactlyInAnyOrderElementsOf(saved);
+        assertThat(fromChunks).hasSize(30).allMatch(member -> saved.stream().anyMatch(s -> s == member));
+        assertThat(fromTempTable).hasSize(30).allMatch(member -> saved.stream().anyMatch(s -> s == member));
+    }
+
+    @Test
+    public void searchBySpecification(){
+        //given
+        Team teamA = teamRepository.save(new Team("searchTeamA"));
+        Team teamB = teamRepository.save(new Team("searchTeamB"));
+        memberRepository.save(new Member("searchMember1", 6, teamA));
+        memberRepository.save(new Member("searchMember2", 6, teamB));
+        memberRepository.save(new Member("searchMember3", 7, teamA));
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        MemberSearchCondition teamAge = new MemberSearchCondition();
+        teamAge.setTeamName("searchTeamA");
+        teamAge.setAgeGoe(6);
+        teamAge.setAgeLoe(6);
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "username"));
+
+        //when
+        Page<Member> byTeamAndAge = memberRepository.search(teamAge, pageRequest);
+        long planMisses = statistics.getQueryPlanCacheMissCount();
+        //같은 조건 조합에 값만 다르면 쿼리 플랜을 다시 쓴다
+        teamAge.setTeamName("searchTeamB");
+        Page<Member> otherValues = memberRepository.search(teamAge, pageRequest);
+        long planMissesAfter = statistics.getQueryPlanCacheMissCount();
+
+        MemberSearchCondition usernameOnly = new MemberSearchCondition();
+        usernameOnly.setUsername("searchMember3");
+        Page<Member> byUsername = memberRepository.search(usernameOnly, pageRequest);
+
+        //then
+        assertThat(byTeamAndAge.getContent()).extracting(Member::getUsername).containsExactly("searchMember1");
+        assertThat(otherValues.getContent()).extracting(Member::getUsername).containsExactly("searchMember2");
+        assertThat(planMissesAfter).isEqualTo(planMisses);
+        assertThat(byUsername.getContent()).extracting(Member::getAge).containsExactly(7);
+    }
+
+    @Test
+    public void aggregateCounts(){
+        //given
+        Team team = teamRepository.save(new Team("aggregateTeam"));
+        memberRepository.save(new Member("aggregateMember1", 8, team));
+        memberRepository.save(new Member("aggregateMember2", 8, team));
+        memberRepository.save(new Member("aggregateMember3", 9, team));
+        em.flush();
+        em.clear();
+
+        //when
+        TeamMemberCounts teamCounts = memberRepository.countMembersPerTeam();
+        long[] countsByAge = memberRepository.countMembersByAge();
+        long[] histogram = memberRepository.ageHistogram(5, 2);
+
+        //then
+        long age8 = em.createQuery("select count(m) from Member m where m.age = 8", Long.class).getSingleResult();
+        long under5 = em.createQuery("select count(m) from Member m where m.age < 5", Long.class).getSingleResult();
+        long withTeam = em.createQuery("select count(m) from Member m where m.team is not null", Long.class).getSingleResult();
+        assertThat(teamCounts.get(team.getId())).isEqualTo(3);
+        assertThat(teamCounts.get(-1L)).isEqualTo(0);
+        assertThat(teamCounts.total()).isEqualTo(withTeam);
+        assertThat(countsByAge[8]).isEqualTo(age8);
+        assertThat(histogram[0]).isEqualTo(under5);
+        assertThat(histogram[0] + histogram[1]).isEqualTo(memberRepository.count());
+    }
+
+    @Test
+    public void findWithFetchProfile(){
+        //given
+        Team team = teamRepository.save(new Team("profileTeam"));
+        memberRepository.save(new Member("profileMember", 43, team));
+        em.flush();
+        em.clear();
+        PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        //when
+        List<Member> summary = memberRepository.findByUsername("profileMember", MemberFetchProfile.SUMMARY);
+        boolean summaryTeamLoaded = persistenceUnitUtil.isLoaded(summary.get(0), "team");
+        em.clear();
+        List<Member> withTeam = memberRepository.findByUsername("profileMember", MemberFetchProfile.WITH_TEAM);
+
+        //then
+        assertThat(summaryTeamLoaded).isFalse();
+        assertThat(persistenceUnitUtil.isLoaded(withTeam.get(0), "team")).isTrue();
+        assertThat(withTeam.get(0).getTeam().getName()).isEqualTo("profileTeam");
+
+        //팀 컬럼까지 읽기 때문에 한 row 에서 읽는 양이 더 많다
+        Map<String, Object> summaryStats = sqlMetrics.snapshot("MemberRepository.findByUsername[SUMMARY]");
+        Map<String, Object> withTeamStats = sqlMetrics.snapshot("MemberRepository.findByUsername[WITH_TEAM]");
+        assertThat((Long) summaryStats.get("rows")).isEqualTo(summary.size());
+        assertThat((Long) withTeamStats.get("rows")).isEqualTo(withTeam.size());
+        assertThat((Long) withTeamStats.get("bytes") / withTeam.size())
+                .isGreaterThan((Long) summaryStats.get("bytes") / summary.size());
+    }
+
+    private List<String> withMissingNames(List<String> names, int missing) {
+        List<String> result = new ArrayList<>(names);
+        for (int i = 0; i < missing; i++) {
+            result.add("missingMember" + i);
+        }
+        return result;
+    }
+}
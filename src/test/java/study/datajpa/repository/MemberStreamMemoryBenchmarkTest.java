@@ -0,0 +1,109 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+//대량 데이터를 Stream 으로 읽을 때 힙 사용량이 건수와 상관없이 일정한지 확인한다
+//benchmark 태스크는 작은 힙(-Xmx256m)으로 실행되기 때문에 findAll() 로 List 에 다 올리면 OutOfMemoryError 가 난다.
+//데이터는 힙 밖에 두기 위해 파일 DB 를 쓰고, H2 도 결과를 한번에 만들지 않도록 LAZY_QUERY_EXECUTION 을 켠다
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./build/benchmark/stream;LAZY_QUERY_EXECUTION=1",
+        "logging.level.org.hibernate.SQL=info"
+})
+class MemberStreamMemoryBenchmarkTest {
+
+    static final int MEMBER_COUNT = 1_000_000;
+    static final int FETCH_SIZE = 1_000;
+    static final int SAMPLE_EVERY = 100_000;
+    //측정 오차를 감안한 허용 증가량
+    static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp(){
+        if (memberRepository.count() >= MEMBER_COUNT) {
+            return;
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < MEMBER_COUNT; i++) {
+            members.add(new Member("member" + i, i % 100));
+            if (members.size() == 100_000) {
+                transactionTemplate.execute(status -> memberJpaRepository.saveAllBatched(members, FETCH_SIZE));
+                members.clear();
+            }
+        }
+    }
+
+    @Test
+    public void streamEntitiesInConstantMemory(){
+        HeapSampler sampler = new HeapSampler();
+        long count = transactionTemplate.execute(status -> {
+            try (Stream<Member> members = memberJpaRepository.streamAll(FETCH_SIZE)) {
+                return members.peek(m -> sampler.sample()).count();
+            }
+        });
+        sampler.print("streamAll");
+
+        assertThat(count).isEqualTo(MEMBER_COUNT);
+        assertThat(sampler.growth()).isLessThan(MAX_HEAP_GROWTH);
+    }
+
+    @Test
+    public void streamDtosInConstantMemory(){
+        HeapSampler sampler = new HeapSampler();
+        long count = transactionTemplate.execute(status -> {
+            try (Stream<MemberDto> dtos = memberRepository.streamMemberDto(FETCH_SIZE)) {
+                return dtos.peek(dto -> sampler.sample()).count();
+            }
+        });
+        sampler.print("streamMemberDto");
+
+        assertThat(count).isEqualTo(MEMBER_COUNT);
+        assertThat(sampler.growth()).isLessThan(MAX_HEAP_GROWTH);
+    }
+
+    //SAMPLE_EVERY 건마다 GC 후 사용중인 힙 크기를 기록한다
+    static class HeapSampler {
+        private long rows;
+        private long first = -1;
+        private long max;
+
+        void sample(){
+            if (rows++ % SAMPLE_EVERY != 0) {
+                return;
+            }
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            long used = runtime.totalMemory() - runtime.freeMemory();
+            if (first < 0) {
+                first = used;
+            }
+            max = Math.max(max, used);
+        }
+
+        long growth(){
+            return max - first;
+        }
+
+        void print(String name){
+            System.out.printf("%s rows=%d firstHeap=%dMB maxHeap=%dMB growth=%dMB%n",
+                    name, rows, first >> 20, max >> 20, growth() >> 20);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1",
+        "datajpa.write-behind.enabled=true",
+        "datajpa.write-behind.batch-size=100",
+        "datajpa.write-behind.flush-interval-millis=50"
+})
+class MemberWriteBehindBufferTest {
+    @Autowired MemberWriteBehindBuffer memberWriteBehindBuffer;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void flushBySizeAndTime() throws Exception {
+        //given
+        //250 명 = 크기로 두번 + 남은 50명은 시간이 지나서 저장된다
+        List<CompletableFuture<Member>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 250; i++) {
+            futures.add(memberWriteBehindBuffer.enqueue(new Member("writeBehindMember" + i, 3)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        //then
+        assertThat(futures).allMatch(future -> future.join().getId() != null);
+        assertThat(memberRepository.findByUsernames(
+                futures.stream().map(future -> future.join().getUsername()).collect(toList())))
+                .hasSize(250);
+        assertThat(memberWriteBehindBuffer.pendingCount()).isZero();
+    }
+
+    @Test
+    public void backpressureAndDrainOnShutdown() throws Exception {
+        //given
+        //저장이 release 를 기다리며 멈춰 있는 동안 큐를 가득 채운다
+        CountDownLatch release = new CountDownLatch(1);
+        MemberRepository blocking = mock(MemberRepository.class);
+        given(blocking.saveAllBatched(any(), anyInt())).willAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return memberRepository.saveAllBatched(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(blocking, 2, 1, 60_000, 50);
+        buffer.start();
+        CompletableFuture<Member> first = buffer.enqueue(new Member("drainMember1", 3));
+        awaitPending(buffer, 0);
+        CompletableFuture<Member> second = buffer.enqueue(new Member("drainMember2", 3));
+        CompletableFuture<Member> third = buffer.enqueue(new Member("drainMember3", 3));
+
+        //when
+        assertThatThrownBy(() -> buffer.enqueue(new Member("drainMember4", 3)))
+                .isInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+        buffer.shutdown();
+
+        //then
+        //종료하면서 남은 회원을 저장한다
+        assertThat(first.get(1, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(second.get(1, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(third.get(1, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThatThrownBy(() -> buffer.enqueue(new Member("drainMember5", 3)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void failedBatchKeepsCommitting() throws Exception {
+        //given
+        //첫 배치는 RuntimeException 이 아닌 Error 로 실패한다
+        AtomicBoolean failed = new AtomicBoolean();
+        MemberRepository failingOnce = mock(MemberRepository.class);
+        given(failingOnce.saveAllBatched(any(), anyInt())).willAnswer(invocation -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new StackOverflowError("save failed");
+            }
+            return memberRepository.saveAllBatched(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(failingOnce, 10, 1, 60_000, 50);
+        buffer.start();
+
+        //when
+        CompletableFuture<Member> lost = buffer.enqueue(new Member("failedBatchMember1", 3));
+        assertThatThrownBy(() -> lost.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(StackOverflowError.class);
+        CompletableFuture<Member> saved = buffer.enqueue(new Member("failedBatchMember2", 3));
+
+        //then
+        //저장 스레드가 살아 있어서 다음 배치는 저장된다
+        assertThat(saved.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        buffer.shutdown();
+    }
+
+    @Test
+    public void capacitySmallerThanBatchSize(){
+        assertThatThrownBy(() -> new MemberWriteBehindBuffer(memberRepository, 10, 100, 200, 50))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void awaitPending(MemberWriteBehindBuffer buffer, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (buffer.pendingCount() != expected) {
+            if (System.nanoTime() - deadline >= 0) {
+                throw new AssertionError("pending count did not reach " + expected + ": " + buffer.pendingCount());
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package study.datajpa.repository;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.support.DetectNPlusOne;
+import study.datajpa.support.QueryCounter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@Rollback(value = false)
+@DetectNPlusOne
+class TeamRepositoryTest {
+    @Autowired TeamRepository teamRepository;
+    @Autowired TeamJpaRepository teamJpaRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired QueryCounter queryCounter;
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void batchFetchMembers(){
+        //given
+        saveTeamsWithMembers("batchTeam", 5);
+        em.flush();
+        em.clear();
+        //2차 캐시에 남아있는 컬렉션이 아니라 DB 조회 횟수를 보기 위해 비운다
+        em.getEntityManagerFactory().getCache().evictAll();
+
+        //when
+        //팀 조회 1번 + members 초기화는 @BatchSize 로 in 절 1번
+        queryCounter.start();
+        List<Team> teams = teamJpaRepository.findAll();
+        for (Team team : teams) {
+            team.getMembers().size();
+        }
+        int selectCount = queryCounter.selectCount();
+        queryCounter.stop();
+
+        //then
+        assertThat(teams.size()).isGreaterThanOrEqualTo(5);
+        assertThat(selectCount).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DetectNPlusOne(maxRepeatedSelects = 5)
+    public void findPageWithMembers(){
+        //given
+        saveTeamsWithMembers("pageTeam", 5);
+        em.flush();
+        em.clear();
+
+        //when
+        Page<Team> page = teamRepository.findPageWithMembers(PageRequest.of(0, 3, Sort.by("id")));
+        List<Team> teams = teamJpaRepository.findPageWithMembers(0, 3);
+
+        //then
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getContent()).allMatch(team -> Hibernate.isInitialized(team.getMembers()));
+        assertThat(teams).hasSize(3);
+        assertThat(teams).allMatch(team -> Hibernate.isInitialized(team.getMembers()));
+    }
+
+    @Test
+    public void findAllWithMembers(){
+        //given
+        saveTeamsWithMembers("fetchTeam", 3);
+        em.flush();
+        em.clear();
+
+        //when
+        List<Team> teams = teamRepository.findAllWithMembers();
+
+        //then
+        //페치조인으로 늘어난 row 는 distinct 로 걸러진다
+        assertThat(teams).doesNotHaveDuplicates();
+        assertThat(teams).filteredOn(team -> team.getName().startsWith("fetchTeam"))
+                .allMatch(team -> team.getMembers().size() == 2);
+    }
+
+    @Test
+    public void findWithFetchProfile(){
+        //given
+        Team team = teamRepository.save(new Team("profileTeamA"));
+        memberRepository.save(new Member("profileTeamMember1", 44, team));
+        memberRepository.save(new Member("profileTeamMember2", 44, team));
+        em.flush();
+        em.clear();
+
+        //when
+        //SUMMARY 로 읽은 팀은 2차 캐시에 올라간다 - WITH_MEMBERS 는 캐시에 있어도 멤버를 같이 읽어야 한다
+        Team summary = teamRepository.findById(team.getId(), TeamFetchProfile.SUMMARY).get();
+        boolean summaryMembersLoaded = Hibernate.isInitialized(summary.getMembers());
+        em.clear();
+        boolean cached = em.getEntityManagerFactory().getCache().contains(Team.class, team.getId());
+        Team withMembers = teamRepository.findById(team.getId(), TeamFetchProfile.WITH_MEMBERS).get();
+
+        //then
+        assertThat(summaryMembersLoaded).isFalse();
+        assertThat(cached).isTrue();
+        assertThat(Hibernate.isInitialized(withMembers.getMembers())).isTrue();
+        assertThat(withMembers.getMembers()).extracting(Member::getUsername)
+                .containsExactlyInAnyOrder("profileTeamMember1", "profileTeamMember2");
+    }
+
+    private void saveTeamsWithMembers(String prefix, int teamCount){
+        for (int i = 0; i < teamCount; i++) {
+            Team team = teamRepository.save(new Team(prefix + i));
+            memberRepository.save(new Member(prefix + i + "-member1", 18, team));
+            memberRepository.save(new Member(prefix + i + "-member2", 18, team));
+        }
+    }
+}
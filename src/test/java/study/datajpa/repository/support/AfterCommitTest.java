@@ -0,0 +1,74 @@
+package study.datajpa.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:after-commit;DB_CLOSE_DELAY=-1")
+class AfterCommitTest {
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void runOncePerTransaction(){
+        List<String> runs = new ArrayList<>();
+
+        transaction().execute(status -> {
+            AfterCommit.runOnce("key", () -> runs.add("first"));
+            AfterCommit.runOnce("key", () -> runs.add("second"));
+            AfterCommit.runOnce("otherKey", () -> runs.add("other"));
+            //커밋 전에는 실행하지 않는다
+            assertThat(runs).isEmpty();
+            return null;
+        });
+
+        assertThat(runs).containsExactly("first", "other");
+    }
+
+    @Test
+    public void skipOnRollback(){
+        List<String> runs = new ArrayList<>();
+
+        transaction().execute(status -> {
+            AfterCommit.runOnce("key", () -> runs.add("rolledBack"));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(runs).isEmpty();
+    }
+
+    @Test
+    public void runForRequiresNewInsideRegisteredTransaction(){
+        //given
+        List<String> runs = new ArrayList<>();
+        TransactionTemplate requiresNew = transaction();
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        //when
+        transaction().execute(outer -> {
+            AfterCommit.runOnce("key", () -> runs.add("outer"));
+            //바깥 트랜잭션에 이미 등록되어 있어도 안쪽 트랜잭션은 따로 커밋되기 때문에 따로 실행된다
+            requiresNew.execute(inner -> {
+                AfterCommit.runOnce("key", () -> runs.add("inner"));
+                return null;
+            });
+            assertThat(runs).containsExactly("inner");
+            return null;
+        });
+
+        //then
+        assertThat(runs).containsExactly("inner", "outer");
+    }
+
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+}
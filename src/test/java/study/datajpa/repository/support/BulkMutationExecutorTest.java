@@ -0,0 +1,109 @@
+package study.datajpa.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class BulkMutationExecutorTest {
+
+    @Autowired BulkMutationExecutor bulkMutationExecutor;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void parallelChunks(){
+        //given
+        //트랜잭션 밖에서 호출하면 청크마다 새 트랜잭션으로 작업 스레드에서 실행된다
+        //기본 DB 에 커밋되기 때문에 실행할 때마다 다른 이름을 쓴다
+        String prefix = "bulkParallel" + System.nanoTime() + "-";
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            members.add(new Member(prefix + i, 16));
+        }
+        transactionTemplate.execute(status -> memberJpaRepository.saveAllBatched(members, 100));
+        List<BulkProgress> progresses = new CopyOnWriteArrayList<>();
+
+        //when
+        int updated = bulkMutationExecutor.execute(
+                BulkMutation.of(Member.class, "m", "m.age = m.age + 1")
+                        .where("m.username like :prefix")
+                        .parameter("prefix", prefix + "%")
+                        .chunkSize(10),
+                progresses::add);
+
+        //then
+        assertThat(updated).isEqualTo(100);
+        BulkProgress last = progresses.get(progresses.size() - 1);
+        assertThat(last.isDone()).isTrue();
+        assertThat(last.getUpdatedRows()).isEqualTo(100);
+        Long notUpdated = transactionTemplate.execute(status ->
+                em.createQuery("select count(m) from Member m where m.username like :prefix and m.age <> 17", Long.class)
+                        .setParameter("prefix", prefix + "%")
+                        .getSingleResult());
+        assertThat(notUpdated).isEqualTo(0);
+    }
+
+    @Test
+    public void evictOnlyAffectedEntities(){
+        transactionTemplate.execute(status -> {
+            //given
+            Member young = memberJpaRepository.save(new Member("bulkYoung", 17));
+            Member old = memberJpaRepository.save(new Member("bulkOld", 18));
+
+            //when
+            //진행중인 트랜잭션이 있으면 그 트랜잭션 안에서 실행하고 수정된 엔티티만 영속성 컨텍스트에서 내보낸다
+            bulkMutationExecutor.execute(
+                    BulkMutation.of(Member.class, "m", "m.age = m.age + 1")
+                            .where("m.username = :username")
+                            .parameter("username", "bulkOld")
+                            .affects(member -> member.getUsername().equals("bulkOld")));
+
+            //then
+            assertThat(em.contains(young)).isTrue();
+            assertThat(em.contains(old)).isFalse();
+            assertThat(memberJpaRepository.find(old.getId()).getAge()).isEqualTo(19);
+            return null;
+        });
+    }
+
+    @Test
+    public void orPredicateStaysInsideRange(){
+        //given
+        //조건에 or 가 있어도 청크마다 자기 식별자 범위의 행만 수정해야 한다 (한번씩만 +1)
+        String prefix = "bulkOr" + System.nanoTime();
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            members.add(new Member(prefix + (i % 2 == 0 ? "A" : "B") + i, 16));
+        }
+        transactionTemplate.execute(status -> memberJpaRepository.saveAllBatched(members, 100));
+
+        //when
+        int updated = bulkMutationExecutor.execute(
+                BulkMutation.of(Member.class, "m", "m.age = m.age + 1")
+                        .where("m.username like :a or m.username like :b")
+                        .parameter("a", prefix + "A%")
+                        .parameter("b", prefix + "B%")
+                        .chunkSize(5));
+
+        //then
+        assertThat(updated).isEqualTo(30);
+        List<Integer> ages = transactionTemplate.execute(status ->
+                em.createQuery("select m.age from Member m where m.username like :prefix", Integer.class)
+                        .setParameter("prefix", prefix + "%")
+                        .getResultList());
+        assertThat(ages).hasSize(30).containsOnly(17);
+    }
+}
@@ -0,0 +1,114 @@
+package study.datajpa.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+//변경이 커밋된 뒤에 캐시가 비워지는지 보기 위해 테스트 트랜잭션 없이 실행한다
+//무효화 테스트 도중에 백그라운드 갱신이 끼어들면 isSameAs 가 깨지기 때문에 갱신 주기를 길게 잡는다.
+//갱신 주기가 짧아야 하는 staleWhileRevalidate 는 따로 만든 캐시로 확인한다
+@SpringBootTest(properties = {
+        "datajpa.dto-cache.refresh-after-millis=600000",
+        "datajpa.dto-cache.expire-after-millis=1200000"
+})
+class DtoQueryCacheTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired DtoQueryCache dtoQueryCache;
+
+    @Test
+    public void invalidateOnCommit(){
+        //given
+        List<MemberDto> first = memberRepository.findMemberDtoCached();
+
+        //when
+        List<MemberDto> cached = memberRepository.findMemberDtoCached();
+        transactionTemplate.execute(status -> {
+            Team team = teamRepository.save(new Team("dtoCacheTeam"));
+            memberRepository.save(new Member("dtoCacheMember", 5, team));
+            //커밋 전에는 그대로 남아있다
+            assertThat(memberRepository.findMemberDtoCached()).isSameAs(first);
+            return null;
+        });
+        List<MemberDto> afterCommit = memberRepository.findMemberDtoCached();
+
+        //then
+        assertThat(cached).isSameAs(first);
+        assertThat(afterCommit).isNotSameAs(first);
+        assertThat(afterCommit).extracting(MemberDto::getUsername).contains("dtoCacheMember");
+    }
+
+    @Test
+    public void missInsideRolledBackTransaction(){
+        //given
+        dtoQueryCache.invalidateAll();
+        String username = "dtoRollbackMember" + System.nanoTime();
+
+        //when
+        //쓰기 트랜잭션 안에서 처음 읽어도 커밋 안된 행은 캐시에 들어가지 않는다
+        List<MemberDto> inside = transactionTemplate.execute(status -> {
+            Team team = teamRepository.save(new Team("dtoRollbackTeam"));
+            memberRepository.save(new Member(username, 5, team));
+            List<MemberDto> dtos = memberRepository.findMemberDtoCached();
+            status.setRollbackOnly();
+            return dtos;
+        });
+        List<MemberDto> afterRollback = memberRepository.findMemberDtoCached();
+
+        //then
+        assertThat(inside).extracting(MemberDto::getUsername).doesNotContain(username);
+        assertThat(afterRollback).extracting(MemberDto::getUsername).doesNotContain(username);
+    }
+
+    @Test
+    public void invalidateOnBulkUpdate(){
+        List<MemberDto> before = memberRepository.findMemberDtoCached();
+
+        //해당하는 회원이 없어도 벌크 수정을 하면 비운다
+        memberRepository.bulkAgePlus(1000);
+
+        assertThat(memberRepository.findMemberDtoCached()).isNotSameAs(before);
+    }
+
+    @Test
+    public void staleWhileRevalidate() throws InterruptedException {
+        //given
+        //갱신 주기 200ms 인 캐시 - 조회할 때마다 새 목록을 만든다
+        DtoQueryCache dtoQueryCache = new DtoQueryCache(transactionManager, 10, 200, 60_000);
+        Supplier<List<MemberDto>> loader = () -> new ArrayList<>(memberRepository.findMemberDto());
+        try {
+            List<MemberDto> before = dtoQueryCache.get("staleWhileRevalidate", loader);
+            Thread.sleep(300);
+
+            //when
+            //갱신 주기가 지나도 먼저 저장된 값을 바로 돌려주고 백그라운드에서 다시 조회한다
+            List<MemberDto> stale = dtoQueryCache.get("staleWhileRevalidate", loader);
+
+            //then
+            assertThat(stale).isSameAs(before);
+            List<MemberDto> refreshed = stale;
+            for (int i = 0; i < 50 && refreshed == before; i++) {
+                Thread.sleep(100);
+                refreshed = dtoQueryCache.get("staleWhileRevalidate", loader);
+            }
+            assertThat(refreshed).isNotSameAs(before);
+        } finally {
+            dtoQueryCache.shutdown();
+        }
+    }
+}
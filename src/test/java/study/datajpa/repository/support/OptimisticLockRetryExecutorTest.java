@@ -0,0 +1,132 @@
+package study.datajpa.repository.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.*;
+
+//여러 스레드가 같은 회원을 동시에 수정해도 갱신이 사라지지 않는지 확인한다
+//나이를 올리는 테스트라 다른 테스트의 벌크 수정과 섞이지 않게 따로 메모리 DB 를 쓴다.
+//8 스레드가 한 회원을 두고 경합하기 때문에 기본 5번 재시도로는 운 나쁘게 포기하는 스레드가 생길 수 있다.
+//재시도 횟수를 넉넉히 주고 대기 시간은 짧게 줄여서 재시도 한도가 아니라 갱신이 사라지는지만 확인한다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:optimistic-lock;DB_CLOSE_DELAY=-1",
+        "datajpa.optimistic-lock.max-attempts=1000",
+        "datajpa.optimistic-lock.backoff-millis=1"
+})
+class OptimisticLockRetryExecutorTest {
+    private static final Logger log = LoggerFactory.getLogger(OptimisticLockRetryExecutorTest.class);
+
+    static final int THREADS = 8;
+    static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired OptimisticLockRetryExecutor optimisticLockRetryExecutor;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void concurrentReassignmentsDoNotLoseUpdates() throws Exception {
+        //given
+        List<Long> teamIds = transactionTemplate.execute(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                teams.add(new Team("lockTeam" + i));
+                em.persist(teams.get(i));
+            }
+            return teams.stream().map(Team::getId).collect(toList());
+        });
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("lockMember", 0);
+            em.persist(member);
+            return member.getId();
+        });
+        long retriesBefore = optimisticLockRetryExecutor.getRetryCount();
+
+        //when
+        //매번 나이를 1 올리고 팀을 바꾼다. 갱신이 하나라도 사라지면 나이가 전체 수정 횟수보다 작아진다.
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(threads.submit(() -> {
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    Long teamId = teamIds.get(ThreadLocalRandom.current().nextInt(teamIds.size()));
+                    optimisticLockRetryExecutor.run(() -> {
+                        Member member = em.find(Member.class, memberId);
+                        member.setAge(member.getAge() + 1);
+                        member.changeTeam(em.getReference(Team.class, teamId));
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        threads.shutdown();
+        threads.awaitTermination(10, TimeUnit.SECONDS);
+
+        //then
+        int updates = THREADS * UPDATES_PER_THREAD;
+        Member member = transactionTemplate.execute(status -> em.find(Member.class, memberId));
+        long retries = optimisticLockRetryExecutor.getRetryCount() - retriesBefore;
+        log.info("{} concurrent updates in {} ms, {} retries",
+                updates, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), retries);
+
+        assertThat(member.getAge()).isEqualTo(updates);
+        assertThat(member.getVersion()).isEqualTo((long) updates);
+    }
+
+    @Test
+    public void reassignTeamWithoutLoadingMembers(){
+        //given
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team from = new Team("reassignFrom");
+            Team to = new Team("reassignTo");
+            em.persist(from);
+            em.persist(to);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("reassignTeamMember" + i, 0, to));
+            }
+            Member member = new Member("reassignMember", 0, from);
+            em.persist(member);
+            return new Long[]{member.getId(), to.getId()};
+        });
+        //members 컬렉션을 2차 캐시에 올려둔다
+        transactionTemplate.execute(status -> em.find(Team.class, ids[1]).getMembers().size());
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long collectionLoads = statistics.getCollectionLoadCount();
+
+        //when
+        Member member = memberRepository.reassignTeam(ids[0], ids[1]);
+
+        //then
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(collectionLoads);
+        assertThat(member.getTeam().getId()).isEqualTo(ids[1]);
+        //team_id 만 바꿨지만 캐시된 members 컬렉션은 비워져서 다시 읽으면 새 멤버가 보인다
+        List<String> memberNames = transactionTemplate.execute(status -> em.find(Team.class, ids[1]).getMembers()
+                .stream().map(Member::getUsername).collect(toList()));
+        assertThat(memberNames).hasSize(101).contains("reassignMember");
+    }
+}
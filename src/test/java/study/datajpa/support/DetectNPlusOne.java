@@ -0,0 +1,23 @@
+package study.datajpa.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//테스트 하나가 끝날 때 리파지토리 호출 하나에서 select 가 너무 많이 나갔으면 실패시킨다 (NPlusOneDetector)
+//리파지토리 테스트 클래스에 붙여서 모든 테스트에 적용한다. 메서드에 붙인 값이 우선이다.
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(NPlusOneDetector.class)
+public @interface DetectNPlusOne {
+
+    //리파지토리 호출 하나에서 나간 select 가 이 횟수를 넘으면 N+1 로 본다
+    int maxSelectsPerInvocation() default 10;
+
+    //테스트 전체에서 값만 다른 같은 select 가 이 횟수를 넘으면 N+1 로 본다 (리파지토리 밖 지연로딩 포함)
+    //지연로딩을 일부러 보여주는 테스트가 있어서 기본은 보지 않는다
+    int maxRepeatedSelects() default Integer.MAX_VALUE;
+}
@@ -0,0 +1,75 @@
+package study.datajpa.support;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//N+1 감지 - @DetectNPlusOne 을 붙인 테스트마다 테스트 스레드에서 나간 SQL 을 처음부터 끝까지 센다
+//리파지토리 호출 하나 (RepositoryInvocationCounter) 에서 select 가 maxSelectsPerInvocation 번을 넘게 나가면 실패시킨다.
+//maxRepeatedSelects 를 주면 리파지토리 호출이 끝난 뒤 호출한 쪽에서 getTeam() / getMembers() 를 돌면서 나가는
+//지연로딩 select 까지 포함해서 값만 다른 같은 select 가 그 횟수를 넘게 나갔는지도 본다.
+//(배치 페치 / 페치 조인을 쓰면 같은 select 가 반복되지 않는다)
+public class NPlusOneDetector implements BeforeEachCallback, AfterEachCallback {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        queryCounter(context).start();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        QueryCounter queryCounter = queryCounter(context);
+        //테스트가 직접 QueryCounter 를 다시 시작하고 멈췄으면 확인할 값이 남아있지 않다
+        if (!queryCounter.isCounting()) {
+            return;
+        }
+        DetectNPlusOne annotation = annotation(context);
+        try {
+            verifyInvocations(queryCounter.invocations(), annotation.maxSelectsPerInvocation());
+            verify(queryCounter.selectShapes(), annotation.maxRepeatedSelects());
+        } finally {
+            queryCounter.stop();
+        }
+    }
+
+    //리파지토리 호출 하나에서 나간 select 가 maxSelectsPerInvocation 번을 넘으면 AssertionError
+    public static void verifyInvocations(List<QueryCounter.RepositoryInvocation> invocations, int maxSelectsPerInvocation) {
+        for (QueryCounter.RepositoryInvocation invocation : invocations) {
+            if (invocation.getSelects().size() > maxSelectsPerInvocation) {
+                throw new AssertionError("N+1 suspected: " + invocation.getMethod() + " executed "
+                        + invocation.getSelects().size() + " selects (max " + maxSelectsPerInvocation + ")\n"
+                        + String.join("\n", invocation.getSelects()));
+            }
+        }
+    }
+
+    //같은 모양의 select 가 maxRepeatedSelects 번을 넘으면 AssertionError
+    public static void verify(List<String> selectShapes, int maxRepeatedSelects) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String shape : selectShapes) {
+            counts.merge(shape, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > maxRepeatedSelects) {
+                throw new AssertionError("N+1 suspected: same select executed " + entry.getValue()
+                        + " times (max " + maxRepeatedSelects + ")\n" + entry.getKey());
+            }
+        }
+    }
+
+    private static QueryCounter queryCounter(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context).getBean(QueryCounter.class);
+    }
+
+    private static DetectNPlusOne annotation(ExtensionContext context) {
+        return AnnotationSupport.findAnnotation(context.getTestMethod(), DetectNPlusOne.class)
+                .orElseGet(() -> AnnotationSupport.findAnnotation(context.getTestClass(), DetectNPlusOne.class)
+                        .orElseThrow(() -> new IllegalStateException("@DetectNPlusOne not found")));
+    }
+}
@@ -0,0 +1,118 @@
+package study.datajpa.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+//배치 페치를 끄고 리파지토리 호출이 끝난 뒤 지연로딩을 도는 전형적인 N+1 을 만든다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:n-plus-one;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=1"
+})
+@Transactional
+class NPlusOneDetectorTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired QueryCounter queryCounter;
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void detectLazyLoop(){
+        //given
+        saveMembersInTeams(10);
+
+        //when
+        queryCounter.start();
+        List<Member> members = memberRepository.findByUsernames(usernames(10));
+        for (Member member : members) {
+            member.getTeam().getName();
+        }
+        List<String> selectShapes = queryCounter.selectShapes();
+        queryCounter.stop();
+
+        //then
+        //회원 조회 1번 + 팀 조회 10번 - 팀 조회는 리파지토리 호출이 끝난 뒤에 나갔다
+        assertThatThrownBy(() -> NPlusOneDetector.verify(selectShapes, 5))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("N+1 suspected");
+    }
+
+    @Test
+    public void countSelectsPerRepositoryInvocation(){
+        //given
+        saveMembersInTeams(10);
+
+        //when
+        queryCounter.start();
+        memberRepository.findByUsernames(usernames(10));
+        //리파지토리 호출 안에서 팀을 하나씩 읽는 상황을 만든다
+        queryCounter.enterInvocation("MemberRepository.loadTeamsOneByOne");
+        for (Member member : memberRepository.findByUsernames(usernames(10))) {
+            member.getTeam().getName();
+        }
+        queryCounter.exitInvocation();
+        List<QueryCounter.RepositoryInvocation> invocations = queryCounter.invocations();
+        queryCounter.stop();
+
+        //then
+        //안쪽 리파지토리 호출은 바깥 호출에 포함된다
+        assertThat(invocations).extracting(QueryCounter.RepositoryInvocation::getMethod)
+                .containsExactly("MemberRepository.findByUsernames", "MemberRepository.loadTeamsOneByOne");
+        assertThat(invocations.get(0).getSelects()).hasSize(1);
+        //회원 조회 1번 + 회원마다 팀 조회
+        assertThat(invocations.get(1).getSelects()).hasSizeGreaterThan(10);
+        assertThatThrownBy(() -> NPlusOneDetector.verifyInvocations(invocations, 10))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("MemberRepository.loadTeamsOneByOne");
+    }
+
+    @Test
+    @DetectNPlusOne(maxRepeatedSelects = 5)
+    public void fetchJoinPasses(){
+        //given
+        saveMembersInTeams(10);
+
+        //when
+        //팀을 같이 조회하면 지연로딩 select 가 반복되지 않는다 (테스트가 끝날 때 NPlusOneDetector 가 확인한다)
+        List<Member> members = memberRepository.findMemberFetchJoin();
+        for (Member member : members) {
+            if (member.getTeam() != null) {
+                member.getTeam().getName();
+            }
+        }
+
+        //then
+        assertThat(members).hasSizeGreaterThanOrEqualTo(10);
+    }
+
+    private void saveMembersInTeams(int count){
+        for (int i = 0; i < count; i++) {
+            Team team = teamRepository.save(new Team("nPlusOneTeam" + i));
+            memberRepository.save(new Member("nPlusOneMember" + i, 0, team));
+        }
+        em.flush();
+        em.clear();
+        em.getEntityManagerFactory().getCache().evictAll();
+    }
+
+    private List<String> usernames(int count){
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            usernames.add("nPlusOneMember" + i);
+        }
+        return usernames;
+    }
+}
@@ -0,0 +1,164 @@
+package study.datajpa.support;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+//테스트에서 실제로 DB 에 보낸 SQL 을 스레드 별로 센다
+//p6spy 스타터가 JdbcEventListener 빈을 자동으로 등록해 준다.
+@Component
+public class QueryCounter extends SimpleJdbcEventListener {
+
+    private final ThreadLocal<List<Executed>> statements = new ThreadLocal<>();
+    //끝난 리파지토리 호출과 지금 실행중인 가장 바깥 리파지토리 호출 (RepositoryInvocationCounter)
+    private final ThreadLocal<List<RepositoryInvocation>> invocations = new ThreadLocal<>();
+    private final ThreadLocal<OpenInvocation> openInvocation = new ThreadLocal<>();
+
+    //현재 스레드에서 센 SQL 을 비우고 세기 시작한다
+    public void start() {
+        statements.set(new ArrayList<>());
+        invocations.set(new ArrayList<>());
+        openInvocation.remove();
+    }
+
+    public void stop() {
+        statements.remove();
+        invocations.remove();
+        openInvocation.remove();
+    }
+
+    public boolean isCounting() {
+        return statements.get() != null;
+    }
+
+    public int count() {
+        return current().size();
+    }
+
+    public int selectCount() {
+        return (int) current().stream().filter(executed -> isSelect(executed.sql)).count();
+    }
+
+    //바인딩 값이 들어간 SQL
+    public List<String> statements() {
+        return current().stream().map(executed -> executed.sqlWithValues).collect(toList());
+    }
+
+    //바인딩 값 대신 ? 가 들어간 select - 값만 다른 같은 쿼리를 묶어서 볼 때 쓴다 (NPlusOneDetector)
+    public List<String> selectShapes() {
+        return current().stream()
+                .map(executed -> executed.sql)
+                .filter(QueryCounter::isSelect)
+                .map(sql -> sql.trim().replaceAll("\\s+", " "))
+                .collect(toList());
+    }
+
+    //리파지토리 호출이 시작될 때 - 리파지토리 안에서 다시 부른 리파지토리는 바깥 호출에 포함해서 센다
+    public void enterInvocation(String method) {
+        List<Executed> current = statements.get();
+        if (current == null) {
+            return;
+        }
+        OpenInvocation open = openInvocation.get();
+        if (open != null) {
+            open.depth++;
+        } else {
+            openInvocation.set(new OpenInvocation(method, current.size()));
+        }
+    }
+
+    public void exitInvocation() {
+        OpenInvocation open = openInvocation.get();
+        if (open == null) {
+            return;
+        }
+        if (open.depth > 0) {
+            open.depth--;
+            return;
+        }
+        openInvocation.remove();
+        List<Executed> current = statements.get();
+        if (current != null) {
+            List<String> selects = current.subList(open.firstStatement, current.size()).stream()
+                    .map(executed -> executed.sqlWithValues)
+                    .filter(QueryCounter::isSelect)
+                    .collect(toList());
+            invocations.get().add(new RepositoryInvocation(open.method, selects));
+        }
+    }
+
+    //start() 이후 끝난 리파지토리 호출마다 그 안에서 나간 select (NPlusOneDetector)
+    public List<RepositoryInvocation> invocations() {
+        List<RepositoryInvocation> current = invocations.get();
+        if (current == null) {
+            throw new IllegalStateException("QueryCounter is not started");
+        }
+        return current;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        List<Executed> current = statements.get();
+        if (current != null) {
+            current.add(new Executed(statementInformation.getSql(), statementInformation.getSqlWithValues()));
+        }
+    }
+
+    private List<Executed> current() {
+        List<Executed> current = statements.get();
+        if (current == null) {
+            throw new IllegalStateException("QueryCounter is not started");
+        }
+        return current;
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.trim().toLowerCase().startsWith("select");
+    }
+
+    public static class RepositoryInvocation {
+        private final String method;
+        private final List<String> selects;
+
+        public RepositoryInvocation(String method, List<String> selects) {
+            this.method = method;
+            this.selects = selects;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        //바인딩 값이 들어간 select
+        public List<String> getSelects() {
+            return selects;
+        }
+    }
+
+    private static class OpenInvocation {
+        private final String method;
+        private final int firstStatement;
+        private int depth;
+
+        private OpenInvocation(String method, int firstStatement) {
+            this.method = method;
+            this.firstStatement = firstStatement;
+        }
+    }
+
+    private static class Executed {
+        private final String sql;
+        private final String sqlWithValues;
+
+        private Executed(String sql, String sqlWithValues) {
+            this.sql = sql;
+            this.sqlWithValues = sqlWithValues;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package study.datajpa.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+//리파지토리 메서드가 실제로 보낸 SQL 을 H2 EXPLAIN 으로 돌려서 실행계획을 확인한다
+//H2 는 인덱스를 쓰지 못하면 실행계획에 /* PUBLIC.MEMBER.tableScan */ 처럼 남긴다.
+//where 조건이 없는 쿼리 (findAll, 전체 count, min/max 등) 는 원래 전체를 읽는 쿼리라서 실행계획은 보지 않지만
+//조용히 건너뛰지 않고 실패시킨다 - 전체를 읽는 것이 맞는 쿼리는 unfilteredAllowed 로 직접 허용한다.
+@Component
+public class QueryPlanVerifier {
+
+    private static final Pattern WHERE = Pattern.compile("\\bwhere\\b", Pattern.CASE_INSENSITIVE);
+
+    private final QueryCounter queryCounter;
+    private final JdbcTemplate jdbcTemplate;
+
+    public QueryPlanVerifier(QueryCounter queryCounter, JdbcTemplate jdbcTemplate) {
+        this.queryCounter = queryCounter;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    //queries 에서 나간 select / update / delete 의 실행계획 목록 (조건 없는 문장은 plan 이 null)
+    public List<QueryPlan> explain(Runnable queries) {
+        queryCounter.start();
+        List<String> statements;
+        try {
+            queries.run();
+            statements = queryCounter.statements();
+        } finally {
+            queryCounter.stop();
+        }
+
+        List<QueryPlan> plans = new ArrayList<>();
+        for (String sql : statements) {
+            if (!isQuery(sql)) {
+                continue;
+            }
+            plans.add(isFiltered(sql)
+                    ? new QueryPlan(sql, jdbcTemplate.queryForObject("explain " + sql, String.class))
+                    : new QueryPlan(sql, null));
+        }
+        return plans;
+    }
+
+    //table 을 전체 스캔하거나 조건 없이 읽는 쿼리가 하나라도 있으면 실패시킨다
+    public List<QueryPlan> assertNoFullScan(String table, Runnable queries) {
+        return assertNoFullScan(table, queries, sql -> false);
+    }
+
+    //unfilteredAllowed - 조건 없이 읽어도 되는 문장 (ex. 청크 범위를 구하는 min/max)
+    public List<QueryPlan> assertNoFullScan(String table, Runnable queries, Predicate<String> unfilteredAllowed) {
+        List<QueryPlan> plans = explain(queries);
+        List<QueryPlan> filtered = new ArrayList<>();
+        for (QueryPlan plan : plans) {
+            if (plan.isFiltered()) {
+                filtered.add(plan);
+            } else if (!unfilteredAllowed.test(plan.getSql())) {
+                throw new AssertionError("statement without where clause\nsql: " + plan.getSql());
+            }
+        }
+        if (filtered.isEmpty()) {
+            throw new AssertionError("no filtered statement was executed");
+        }
+        for (QueryPlan plan : filtered) {
+            if (plan.isTableScan(table)) {
+                throw new AssertionError("full table scan on " + table + "\nsql: " + plan.getSql() + "\nplan: " + plan.getPlan());
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean isQuery(String sql) {
+        String lower = sql.trim().toLowerCase(Locale.ROOT);
+        return lower.startsWith("select") || lower.startsWith("update") || lower.startsWith("delete");
+    }
+
+    //format_sql 이면 where 앞이 줄바꿈이라 공백 대신 단어 경계로 찾는다
+    private static boolean isFiltered(String sql) {
+        return WHERE.matcher(sql).find();
+    }
+
+    public static class QueryPlan {
+        private final String sql;
+        private final String plan;
+
+        QueryPlan(String sql, String plan) {
+            this.sql = sql;
+            this.plan = plan;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        //조건 없는 문장은 null
+        public String getPlan() {
+            return plan;
+        }
+
+        public boolean isFiltered() {
+            return plan != null;
+        }
+
+        public boolean isTableScan(String table) {
+            return plan != null
+                    && plan.toLowerCase(Locale.ROOT).contains(("." + table + ".tableScan").toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public String toString() {
+            return plan != null ? plan : "(no where clause) " + sql;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package study.datajpa.support;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+//QueryCounter 가 세는 동안 리파지토리 호출마다 시작과 끝을 알려서 호출 하나에서 나간 select 를 따로 모은다
+//대상은 RepositoryMethodTracker 와 같다 (스프링 데이터 JPA 리파지토리, @Repository 클래스)
+@Aspect
+@Component
+public class RepositoryInvocationCounter {
+
+    private final QueryCounter queryCounter;
+
+    public RepositoryInvocationCounter(QueryCounter queryCounter) {
+        this.queryCounter = queryCounter;
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))" +
+            " || execution(public * (@org.springframework.stereotype.Repository *).*(..))")
+    public Object count(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!queryCounter.isCounting()) {
+            return joinPoint.proceed();
+        }
+        queryCounter.enterInvocation(repositoryName(joinPoint.getTarget().getClass()) + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            queryCounter.exitInvocation();
+        }
+    }
+
+    private static String repositoryName(Class<?> targetClass) {
+        for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            if (Repository.class.isAssignableFrom(candidate) && !candidate.getName().startsWith("org.springframework.")) {
+                return candidate.getSimpleName();
+            }
+        }
+        return ClassUtils.getUserClass(targetClass).getSimpleName();
+    }
+}